@@ -4,30 +4,45 @@ import com.foxy.inventoryRestore.InventoryRestore;
 import com.foxy.inventoryRestore.command.InventoryRestoreCommand;
 import com.foxy.inventoryRestore.database.DatabaseManager;
 import com.foxy.inventoryRestore.database.DeathInventoryRepository;
+import com.foxy.inventoryRestore.database.DecodedInventoryCache;
+import com.foxy.inventoryRestore.database.DeltaSnapshotStore;
+import com.foxy.inventoryRestore.database.InventoryBlobMigration;
+import com.foxy.inventoryRestore.database.InventoryCodecService;
+import com.foxy.inventoryRestore.database.InventoryEventRepository;
+import com.foxy.inventoryRestore.database.InventoryStorage;
+import com.foxy.inventoryRestore.database.InventorySummaryBackfill;
+import com.foxy.inventoryRestore.database.ItemStackStore;
 import com.foxy.inventoryRestore.database.PendingInventoryRepository;
 import com.foxy.inventoryRestore.database.PlayerSnapshotRepository;
+import com.foxy.inventoryRestore.database.RetentionPurge;
+import com.foxy.inventoryRestore.database.StorageDiagnostics;
 import com.foxy.inventoryRestore.database.TeleportRepository;
 import com.foxy.inventoryRestore.database.WorldChangeRepository;
+import com.foxy.inventoryRestore.database.WriteBehindBuffer;
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
 import com.foxy.inventoryRestore.inventory.InventoryLayoutService;
-import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.inventory.menu.MenuConfiguration;
 import com.foxy.inventoryRestore.inventory.menu.RestoreMenuManager;
 import com.foxy.inventoryRestore.inventory.view.InventoryViewManager;
 import com.foxy.inventoryRestore.listener.ConnectionListener;
 import com.foxy.inventoryRestore.listener.DeathListener;
+import com.foxy.inventoryRestore.listener.SnapshotFingerprints;
 import com.foxy.inventoryRestore.listener.TeleportListener;
 import com.foxy.inventoryRestore.listener.WorldChangeListener;
 import com.foxy.inventoryRestore.message.MessageService;
 import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+import com.foxy.inventoryRestore.util.MainThreadExecutor;
 import org.bukkit.Bukkit;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.event.HandlerList;
+import org.bukkit.scheduler.BukkitTask;
 
-import java.time.LocalDateTime;
-import java.util.logging.Logger;
+import java.util.List;
 
 public final class PluginBootstrap {
 
+    private static final long TICKS_PER_MINUTE = 20L * 60L;
+
     private final InventoryRestore plugin;
     private DatabaseManager databaseManager;
     private MessageService messageService;
@@ -38,10 +53,22 @@ public final class PluginBootstrap {
     private PlayerSnapshotRepository snapshotRepository;
     private WorldChangeRepository worldRepository;
     private TeleportRepository teleportRepository;
+    private InventoryEventRepository eventRepository;
+    private InventoryStorage storage;
     private RestoreMenuManager menuManager;
     private InventoryViewManager viewManager;
     private InventoryRestoreCommand commandExecutor;
     private AsyncTaskQueue asyncTaskQueue;
+    private WriteBehindBuffer writeBuffer;
+    private InventoryBlobMigration blobMigration;
+    private InventorySummaryBackfill summaryBackfill;
+    private InventoryCodecService codecService;
+    private ItemStackStore itemStore;
+    private DeltaSnapshotStore deltaStore;
+    private StorageDiagnostics storageDiagnostics;
+    private RetentionPurge retentionPurge;
+    private TeleportListener teleportListener;
+    private volatile BukkitTask dictionaryTraining;
 
     public PluginBootstrap(InventoryRestore plugin) {
         this.plugin = plugin;
@@ -65,29 +92,74 @@ public final class PluginBootstrap {
         databaseManager = new DatabaseManager(plugin);
         databaseManager.initialize();
 
-        asyncTaskQueue = new AsyncTaskQueue(plugin.getLogger(), plugin.getDescription().getName() + "-Storage");
+        itemStore = new ItemStackStore();
+        codecService = new InventoryCodecService(databaseManager, itemStore, plugin.getLogger());
+        codecService.loadDictionaries();
+
+        asyncTaskQueue = new AsyncTaskQueue(
+                plugin.getLogger(),
+                plugin.getDescription().getName() + "-Storage",
+                plugin.getConfig().getInt("database.queue.capacity", 2000),
+                plugin.getConfig().getInt("database.queue.hard-capacity", 20000),
+                AsyncTaskQueue.OverflowPolicy.parse(plugin.getConfig().getString("database.queue.overflow-policy"), AsyncTaskQueue.OverflowPolicy.BLOCK),
+                plugin.getConfig().getLong("database.queue.block-millis", 50L),
+                plugin.getConfig().getLong("database.queue.starvation-millis", 500L)
+        );
+        writeBuffer = new WriteBehindBuffer(
+                databaseManager,
+                plugin.getLogger(),
+                plugin.getConfig().getInt("database.write-behind.max-batch-size", 64),
+                plugin.getConfig().getLong("database.write-behind.max-linger-millis", 250L)
+        );
+
+        deltaStore = new DeltaSnapshotStore(itemStore, plugin.getConfig().getInt("database.delta.keyframe-interval", 16));
 
-        deathRepository = new DeathInventoryRepository(databaseManager);
+        deathRepository = new DeathInventoryRepository(databaseManager, writeBuffer, itemStore);
         pendingRepository = new PendingInventoryRepository(databaseManager);
-        snapshotRepository = new PlayerSnapshotRepository(databaseManager);
-        worldRepository = new WorldChangeRepository(databaseManager);
-        teleportRepository = new TeleportRepository(databaseManager);
+        snapshotRepository = new PlayerSnapshotRepository(databaseManager, writeBuffer, deltaStore);
+        worldRepository = new WorldChangeRepository(databaseManager, writeBuffer, deltaStore);
+        teleportRepository = new TeleportRepository(databaseManager, writeBuffer, deltaStore);
+        eventRepository = new InventoryEventRepository(databaseManager, deltaStore, deathRepository, snapshotRepository, worldRepository, teleportRepository);
+        DecodedInventoryCache decodedCache = new DecodedInventoryCache(plugin.getConfig().getLong("cache.decoded-inventories.max-kilobytes", 32768L) * 1024L);
+        storage = new InventoryStorage(asyncTaskQueue, databaseManager.readExecutor(), plugin.getLogger(), new MainThreadExecutor(plugin), deathRepository, snapshotRepository, worldRepository, teleportRepository, pendingRepository, eventRepository, decodedCache);
+
+        blobMigration = new InventoryBlobMigration(databaseManager, asyncTaskQueue, plugin.getLogger());
+        blobMigration.start();
+        summaryBackfill = new InventorySummaryBackfill(databaseManager, eventRepository, asyncTaskQueue, plugin.getLogger());
+        summaryBackfill.start();
+        asyncTaskQueue.execute("compression dictionary training", codecService::trainIfMissing);
+        scheduleDictionaryTraining();
+
+        retentionPurge = new RetentionPurge(plugin, asyncTaskQueue, plugin.getLogger(), List.of(
+                new RetentionPurge.Target("inventory_event", storage::deleteOlderThan)
+        ));
+
+        storageDiagnostics = new StorageDiagnostics(plugin, asyncTaskQueue, writeBuffer, codecService, retentionPurge, decodedCache);
 
+        SnapshotFingerprints fingerprints = new SnapshotFingerprints(plugin.getConfig().getInt("database.deduplication.tracked-players", 2048));
         Bukkit.getPluginManager().registerEvents(new DeathListener(deathRepository, asyncTaskQueue), plugin);
-        Bukkit.getPluginManager().registerEvents(new ConnectionListener(snapshotRepository, pendingRepository, asyncTaskQueue), plugin);
-        Bukkit.getPluginManager().registerEvents(new WorldChangeListener(worldRepository, asyncTaskQueue), plugin);
-        Bukkit.getPluginManager().registerEvents(new TeleportListener(teleportRepository, asyncTaskQueue), plugin);
+        Bukkit.getPluginManager().registerEvents(new ConnectionListener(snapshotRepository, storage, asyncTaskQueue, fingerprints), plugin);
+        Bukkit.getPluginManager().registerEvents(new WorldChangeListener(worldRepository, asyncTaskQueue, fingerprints), plugin);
+        teleportListener = new TeleportListener(
+                plugin,
+                teleportRepository,
+                asyncTaskQueue,
+                fingerprints,
+                plugin.getConfig().getInt("teleport.coalesce-seconds", 5),
+                plugin.getConfig().getInt("teleport.max-records-per-hour", 30)
+        );
+        Bukkit.getPluginManager().registerEvents(teleportListener, plugin);
 
-        menuManager = new RestoreMenuManager(plugin, messageService, inventoryLayoutService, menuConfiguration, deathRepository, snapshotRepository, worldRepository, teleportRepository);
+        menuManager = new RestoreMenuManager(plugin, messageService, inventoryLayoutService, menuConfiguration, storage);
         Bukkit.getPluginManager().registerEvents(menuManager, plugin);
 
-        viewManager = new InventoryViewManager(plugin, messageService, menuConfiguration, snapshotRepository, pendingRepository);
+        viewManager = new InventoryViewManager(plugin, messageService, menuConfiguration, storage);
         Bukkit.getPluginManager().registerEvents(viewManager, plugin);
 
-        commandExecutor = new InventoryRestoreCommand(messageService, deathRepository, snapshotRepository, worldRepository, teleportRepository, menuManager, viewManager, this::reload);
+        commandExecutor = new InventoryRestoreCommand(messageService, storage, menuManager, viewManager, storageDiagnostics, this::reload);
         registerCommand();
 
-        purgeExpiredRecords();
+        startRetention();
     }
 
     public void reload() {
@@ -105,28 +177,56 @@ public final class PluginBootstrap {
             HandlerList.unregisterAll(viewManager);
         }
 
-        menuManager = new RestoreMenuManager(plugin, messageService, inventoryLayoutService, menuConfiguration, deathRepository, snapshotRepository, worldRepository, teleportRepository);
+        menuManager = new RestoreMenuManager(plugin, messageService, inventoryLayoutService, menuConfiguration, storage);
         Bukkit.getPluginManager().registerEvents(menuManager, plugin);
 
-        viewManager = new InventoryViewManager(plugin, messageService, menuConfiguration, snapshotRepository, pendingRepository);
+        viewManager = new InventoryViewManager(plugin, messageService, menuConfiguration, storage);
         Bukkit.getPluginManager().registerEvents(viewManager, plugin);
 
-        commandExecutor = new InventoryRestoreCommand(messageService, deathRepository, snapshotRepository, worldRepository, teleportRepository, menuManager, viewManager, this::reload);
+        commandExecutor = new InventoryRestoreCommand(messageService, storage, menuManager, viewManager, storageDiagnostics, this::reload);
         registerCommand();
 
-        purgeExpiredRecords();
+        startRetention();
     }
 
     public void disable() {
         HandlerList.unregisterAll(plugin);
-        if (databaseManager != null) {
-            databaseManager.shutdown();
-            databaseManager = null;
+        if (teleportListener != null) {
+            teleportListener.flushAll();
+            teleportListener = null;
+        }
+        if (retentionPurge != null) {
+            retentionPurge.stop();
+            retentionPurge = null;
+        }
+        if (dictionaryTraining != null) {
+            dictionaryTraining.cancel();
+            dictionaryTraining = null;
+        }
+        if (blobMigration != null) {
+            blobMigration.stop();
+            blobMigration = null;
+        }
+        if (summaryBackfill != null) {
+            summaryBackfill.stop();
+            summaryBackfill = null;
         }
         if (asyncTaskQueue != null) {
             asyncTaskQueue.shutdown();
             asyncTaskQueue = null;
         }
+        if (writeBuffer != null) {
+            writeBuffer.shutdown();
+            writeBuffer = null;
+        }
+        if (databaseManager != null) {
+            databaseManager.shutdown();
+            databaseManager = null;
+        }
+        codecService = null;
+        itemStore = null;
+        deltaStore = null;
+        storageDiagnostics = null;
         messageService = null;
         inventoryLayoutService = null;
         menuConfiguration = null;
@@ -135,6 +235,8 @@ public final class PluginBootstrap {
         snapshotRepository = null;
         worldRepository = null;
         teleportRepository = null;
+        eventRepository = null;
+        storage = null;
         menuManager = null;
         viewManager = null;
         commandExecutor = null;
@@ -148,25 +250,26 @@ public final class PluginBootstrap {
         }
     }
 
-    private void purgeExpiredRecords() {
-        int days = plugin.getConfig().getInt("time_erase", 0);
-        if (days <= 0) {
-            return;
-        }
+    private void scheduleDictionaryTraining() {
+        long period = Math.max(1L, plugin.getConfig().getLong("database.codec.training-interval-minutes", 60L)) * TICKS_PER_MINUTE;
+        AsyncTaskQueue queue = asyncTaskQueue;
+        InventoryCodecService service = codecService;
+        dictionaryTraining = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, () -> {
+            BukkitTask task = dictionaryTraining;
+            if (InventoryCodec.activeDictionary() == InventoryCodec.NO_DICTIONARY) {
+                queue.execute("compression dictionary training", AsyncTaskQueue.Lane.BULK, service::trainIfMissing);
+            } else if (task != null) {
+                task.cancel();
+            }
+        }, period, period);
+    }
 
-        LocalDateTime threshold = LocalDateTime.now().minusDays(days);
-        int removedDeaths = deathRepository.deleteOlderThan(threshold);
-        int removedConnections = snapshotRepository.deleteOlderThan(threshold, InventoryRecordType.CONNECTION);
-        int removedDisconnections = snapshotRepository.deleteOlderThan(threshold, InventoryRecordType.DISCONNECTION);
-        int removedWorlds = worldRepository.deleteOlderThan(threshold);
-        int removedTeleports = teleportRepository.deleteOlderThan(threshold);
-
-        int totalRemoved = removedDeaths + removedConnections + removedDisconnections + removedWorlds + removedTeleports;
-        if (totalRemoved > 0) {
-            Logger logger = plugin.getLogger();
-            logger.info("Removed " + totalRemoved + " expired inventory records (" +
-                    removedDeaths + " deaths, " + removedWorlds + " worlds, " + removedTeleports + " teleports, " + removedConnections + " connections, " + removedDisconnections + " disconnections).");
-        }
+    private void startRetention() {
+        retentionPurge.start(
+                plugin.getConfig().getInt("time_erase", 0),
+                plugin.getConfig().getLong("retention.interval-minutes", 60L),
+                plugin.getConfig().getInt("retention.chunk-size", 500)
+        );
     }
 
 }
@@ -1,12 +1,16 @@
 package com.foxy.inventoryRestore.command;
 
-import com.foxy.inventoryRestore.database.DeathInventoryRepository;
-import com.foxy.inventoryRestore.database.PlayerSnapshotRepository;
-import com.foxy.inventoryRestore.database.TeleportRepository;
-import com.foxy.inventoryRestore.database.WorldChangeRepository;
-import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+import com.foxy.inventoryRestore.database.DecodedInventoryCache;
+import com.foxy.inventoryRestore.database.InventoryCodecService;
+import com.foxy.inventoryRestore.database.InventoryStorage;
+import com.foxy.inventoryRestore.database.RetentionPurge;
+import com.foxy.inventoryRestore.database.StorageDiagnostics;
+import com.foxy.inventoryRestore.database.WriteBehindBuffer;
+import com.foxy.inventoryRestore.inventory.CodecBenchmark;
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
 import com.foxy.inventoryRestore.inventory.menu.RestoreMenuManager;
 import com.foxy.inventoryRestore.inventory.view.InventoryViewManager;
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
 import org.bukkit.Bukkit;
 import com.foxy.inventoryRestore.message.MessageService;
 import org.bukkit.command.Command;
@@ -25,6 +29,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public final class InventoryRestoreCommand implements CommandExecutor, TabCompleter {
 
@@ -33,36 +38,35 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
     private static final String RELOAD_PERMISSION = "inventoryrestore.reload";
     private static final String VIEW_PERMISSION = "inventoryrestore.view";
     private static final String VIEW_MODIFY_PERMISSION = "inventoryrestore.view.use";
+    private static final String STORAGE_PERMISSION = "inventoryrestore.storage";
     private static final String RESTORE_SUBCOMMAND = "restore";
     private static final String RELOAD_SUBCOMMAND = "reload";
     private static final String VIEW_SUBCOMMAND = "view";
+    private static final String STORAGE_SUBCOMMAND = "storage";
+    private static final String CODEC_OPTION = "codec";
+    private static final String BENCHMARK_OPTION = "benchmark";
     private static final Duration NICKNAME_CACHE_TTL = Duration.ofSeconds(5);
 
     private final MessageService messageService;
-    private final DeathInventoryRepository deathRepository;
-    private final PlayerSnapshotRepository snapshotRepository;
-    private final WorldChangeRepository worldRepository;
-    private final TeleportRepository teleportRepository;
+    private final InventoryStorage storage;
     private final RestoreMenuManager menuManager;
     private final InventoryViewManager viewManager;
+    private final StorageDiagnostics storageDiagnostics;
     private final Runnable reloadAction;
+    private final AtomicBoolean refreshingNicknames = new AtomicBoolean();
     private volatile CachedNicknames nicknameCache = new CachedNicknames(Collections.emptyList(), Instant.EPOCH);
 
     public InventoryRestoreCommand(MessageService messageService,
-                                   DeathInventoryRepository deathRepository,
-                                   PlayerSnapshotRepository snapshotRepository,
-                                   WorldChangeRepository worldRepository,
-                                   TeleportRepository teleportRepository,
+                                   InventoryStorage storage,
                                    RestoreMenuManager menuManager,
                                    InventoryViewManager viewManager,
+                                   StorageDiagnostics storageDiagnostics,
                                    Runnable reloadAction) {
         this.messageService = messageService;
-        this.deathRepository = deathRepository;
-        this.snapshotRepository = snapshotRepository;
-        this.worldRepository = worldRepository;
-        this.teleportRepository = teleportRepository;
+        this.storage = storage;
         this.menuManager = menuManager;
         this.viewManager = viewManager;
+        this.storageDiagnostics = storageDiagnostics;
         this.reloadAction = reloadAction;
     }
 
@@ -84,6 +88,7 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
             case RESTORE_SUBCOMMAND -> handleRestore(sender, args);
             case VIEW_SUBCOMMAND -> handleView(sender, args);
             case RELOAD_SUBCOMMAND -> handleReload(sender);
+            case STORAGE_SUBCOMMAND -> handleStorage(sender, args);
             default -> messageService.send(sender, "command.unknown-subcommand");
         }
         return true;
@@ -103,6 +108,140 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
         }
     }
 
+    private void handleStorage(CommandSender sender, String[] args) {
+        if (!sender.hasPermission(STORAGE_PERMISSION)) {
+            messageService.send(sender, "command.no-permission");
+            return;
+        }
+
+        if (args.length >= 2 && CODEC_OPTION.equalsIgnoreCase(args[1])) {
+            handleCodecReport(sender);
+            return;
+        }
+        if (args.length >= 2 && BENCHMARK_OPTION.equalsIgnoreCase(args[1])) {
+            handleCodecBenchmark(sender);
+            return;
+        }
+
+        WriteBehindBuffer.Statistics statistics = storageDiagnostics.writeStatistics();
+        messageService.send(sender, "command.storage.header");
+        messageService.send(sender, "command.storage.write-behind", Map.of(
+                "rows", Long.toString(statistics.rows()),
+                "batches", Long.toString(statistics.batches()),
+                "average", String.format(Locale.ENGLISH, "%.1f", statistics.averageBatch()),
+                "largest", Integer.toString(statistics.largestBatch()),
+                "pending", Integer.toString(statistics.pending())
+        ), false);
+
+        AsyncTaskQueue.Statistics queue = storageDiagnostics.queueStatistics();
+        messageService.send(sender, "command.storage.queue", Map.of(
+                "depth", Integer.toString(queue.depth()),
+                "capacity", queue.capacity() == 0 ? "-" : Integer.toString(queue.capacity()),
+                "peak", Integer.toString(queue.peakDepth()),
+                "blocked", Long.toString(queue.blockedSubmissions()),
+                "blocked-time", String.format(Locale.ENGLISH, "%.0f", queue.blockedMillis()),
+                "promoted", Long.toString(queue.promoted()),
+                "starvation", Long.toString(queue.starvationMillis())
+        ), false);
+        for (AsyncTaskQueue.LaneStatistics lane : queue.lanes()) {
+            messageService.send(sender, "command.storage.queue-lane", Map.of(
+                    "lane", lane.lane().name().toLowerCase(Locale.ENGLISH),
+                    "depth", Integer.toString(lane.depth()),
+                    "executed", Long.toString(lane.executed()),
+                    "wait", String.format(Locale.ENGLISH, "%.1f", lane.averageWaitMillis()),
+                    "max-wait", String.format(Locale.ENGLISH, "%.0f", lane.maxWaitMillis())
+            ), false);
+        }
+        messageService.send(sender, "command.storage.queue-dropped", Map.of(
+                "dropped", Long.toString(queue.dropped()),
+                "teleport", Long.toString(queue.droppedLow()),
+                "world", Long.toString(queue.droppedNormal()),
+                "connection", Long.toString(queue.droppedHigh()),
+                "rejected", Long.toString(queue.rejected()),
+                "hard-capacity", queue.hardCapacity() == 0 ? "-" : Integer.toString(queue.hardCapacity())
+        ), false);
+
+        DecodedInventoryCache.Statistics cache = storageDiagnostics.cacheStatistics();
+        messageService.send(sender, "command.storage.inventory-cache", Map.of(
+                "entries", Integer.toString(cache.entries()),
+                "size", Long.toString(cache.bytes() / 1024L),
+                "max", Long.toString(cache.maxBytes() / 1024L),
+                "rate", String.format(Locale.ENGLISH, "%.1f", cache.hitRate()),
+                "hits", Long.toString(cache.hits()),
+                "misses", Long.toString(cache.misses()),
+                "evictions", Long.toString(cache.evictions())
+        ), false);
+
+        RetentionPurge.Progress retention = storageDiagnostics.retentionProgress();
+        if (retention == null) {
+            messageService.send(sender, "command.storage.retention-idle", Map.of(), false);
+        } else {
+            messageService.send(sender, retention.running() ? "command.storage.retention-running" : "command.storage.retention-last", Map.of(
+                    "table", retention.table() == null ? "-" : retention.table(),
+                    "rows", Long.toString(retention.removed()),
+                    "seconds", String.format(Locale.ENGLISH, "%.1f", retention.elapsedMillis() / 1000.0D),
+                    "rate", String.format(Locale.ENGLISH, "%.0f", retention.rowsPerSecond())
+            ), false);
+        }
+
+        int dictionary = storageDiagnostics.activeDictionary();
+        if (dictionary == InventoryCodec.NO_DICTIONARY) {
+            messageService.send(sender, "command.storage.dictionary-none", Map.of(), false);
+        } else {
+            messageService.send(sender, "command.storage.dictionary", Map.of("dictionary", "#" + dictionary), false);
+        }
+    }
+
+    private void handleCodecReport(CommandSender sender) {
+        messageService.send(sender, "command.storage.codec-running");
+        storageDiagnostics.codecReport(reports -> {
+            messageService.send(sender, "command.storage.header");
+            for (InventoryCodecService.TableReport report : reports) {
+                if (report.rows() == 0) {
+                    messageService.send(sender, "command.storage.codec-empty", Map.of("table", report.table()), false);
+                    continue;
+                }
+                messageService.send(sender, "command.storage.codec-table", Map.of(
+                        "table", report.table(),
+                        "rows", Integer.toString(report.rows()),
+                        "stored", Long.toString(report.storedBytes() / 1024L),
+                        "compressed", Integer.toString(report.compressedRows()),
+                        "ratio", String.format(Locale.ENGLISH, "%.2f", report.ratio()),
+                        "decode", String.format(Locale.ENGLISH, "%.1f", report.averageDecodeMicros())
+                ), false);
+            }
+        });
+    }
+
+    private void handleCodecBenchmark(CommandSender sender) {
+        messageService.send(sender, "command.storage.benchmark-running");
+        storageDiagnostics.codecBenchmark(report -> {
+            messageService.send(sender, "command.storage.header");
+            if (report.objectStream().inventories() == 0) {
+                messageService.send(sender, "command.storage.benchmark-empty", Map.of(), false);
+                return;
+            }
+            sendBenchmarkResult(sender, "object stream", report.objectStream());
+            sendBenchmarkResult(sender, "slot table", report.legacy());
+            sendBenchmarkResult(sender, "compact (fresh buffers)", report.compactUnpooled());
+            sendBenchmarkResult(sender, "compact", report.compact());
+            if (!report.compactAvailable()) {
+                messageService.send(sender, "command.storage.benchmark-fallback", Map.of(), false);
+            }
+        });
+    }
+
+    private void sendBenchmarkResult(CommandSender sender, String format, CodecBenchmark.Result result) {
+        messageService.send(sender, "command.storage.benchmark-format", Map.of(
+                "format", format,
+                "rows", Integer.toString(result.inventories()),
+                "bytes", String.format(Locale.ENGLISH, "%.0f", result.averageBytes()),
+                "encode", String.format(Locale.ENGLISH, "%.1f", result.averageEncodeMicros()),
+                "decode", String.format(Locale.ENGLISH, "%.1f", result.averageDecodeMicros()),
+                "allocated", result.allocationMeasured() ? String.format(Locale.ENGLISH, "%.1f", result.averageAllocatedKilobytes()) : "?"
+        ), false);
+    }
+
     private void handleRestore(CommandSender sender, String[] args) {
         if (!sender.hasPermission(RESTORE_PERMISSION)) {
             messageService.send(sender, "command.no-permission");
@@ -121,11 +260,6 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
             return;
         }
 
-        if (!hasAnyRecords(targetName)) {
-            messageService.send(sender, "command.restore.no-record-any", Map.of("player", targetName));
-            return;
-        }
-
         menuManager.openMainMenu(player, targetName);
     }
 
@@ -169,12 +303,21 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
             if (sender.hasPermission(RELOAD_PERMISSION)) {
                 subcommands.add(RELOAD_SUBCOMMAND);
             }
+            if (sender.hasPermission(STORAGE_PERMISSION)) {
+                subcommands.add(STORAGE_SUBCOMMAND);
+            }
             StringUtil.copyPartialMatches(args[0], subcommands, options);
             Collections.sort(options, String.CASE_INSENSITIVE_ORDER);
             return options;
         }
 
         String subcommand = args[0].toLowerCase(Locale.ENGLISH);
+        if (STORAGE_SUBCOMMAND.equals(subcommand) && sender.hasPermission(STORAGE_PERMISSION) && args.length == 2) {
+            List<String> completions = new ArrayList<>();
+            StringUtil.copyPartialMatches(args[1], List.of(CODEC_OPTION, BENCHMARK_OPTION), completions);
+            return completions;
+        }
+
         if ((RESTORE_SUBCOMMAND.equals(subcommand) && sender.hasPermission(RESTORE_PERMISSION))
                 || (VIEW_SUBCOMMAND.equals(subcommand) && sender.hasPermission(VIEW_PERMISSION))) {
             if (args.length == 2) {
@@ -190,43 +333,29 @@ public final class InventoryRestoreCommand implements CommandExecutor, TabComple
     }
 
     private List<String> getAllKnownNicknames() {
-        Instant now = Instant.now();
         CachedNicknames cache = nicknameCache;
-        if (cache != null && now.isBefore(cache.expiresAt())) {
-            return cache.names();
+        if (Instant.now().isAfter(cache.expiresAt())) {
+            refreshNicknames();
         }
 
-        Set<String> names = new HashSet<>(deathRepository.findAllNicknames());
-        names.addAll(worldRepository.findAllNicknames());
-        names.addAll(teleportRepository.findAllNicknames());
-        names.addAll(snapshotRepository.findAllNicknames(InventoryRecordType.CONNECTION));
-        names.addAll(snapshotRepository.findAllNicknames(InventoryRecordType.DISCONNECTION));
+        Set<String> names = new HashSet<>(cache.names());
         Bukkit.getOnlinePlayers().forEach(player -> names.add(player.getName()));
-
-        List<String> sorted = new ArrayList<>(names);
-        sorted.sort(String.CASE_INSENSITIVE_ORDER);
-        List<String> cached = Collections.unmodifiableList(sorted);
-        nicknameCache = new CachedNicknames(cached, now.plus(NICKNAME_CACHE_TTL));
-        return cached;
+        return new ArrayList<>(names);
     }
 
-    private record CachedNicknames(List<String> names, Instant expiresAt) {
+    private void refreshNicknames() {
+        if (!refreshingNicknames.compareAndSet(false, true)) {
+            return;
+        }
+        storage.findAllNicknames().whenComplete((names, error) -> {
+            if (names != null) {
+                nicknameCache = new CachedNicknames(List.copyOf(names), Instant.now().plus(NICKNAME_CACHE_TTL));
+            }
+            refreshingNicknames.set(false);
+        });
     }
 
-    private boolean hasAnyRecords(String nickname) {
-        if (deathRepository.hasRecords(nickname)) {
-            return true;
-        }
-        if (worldRepository.hasRecords(nickname)) {
-            return true;
-        }
-        if (teleportRepository.hasRecords(nickname)) {
-            return true;
-        }
-        if (snapshotRepository.hasRecords(nickname, InventoryRecordType.CONNECTION)) {
-            return true;
-        }
-        return snapshotRepository.hasRecords(nickname, InventoryRecordType.DISCONNECTION);
+    private record CachedNicknames(List<String> names, Instant expiresAt) {
     }
 
 }
@@ -1,30 +1,45 @@
 package com.foxy.inventoryRestore.database;
 
 import com.foxy.inventoryRestore.InventoryRestore;
+import com.foxy.inventoryRestore.inventory.CodecBuffers;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public final class DatabaseManager {
 
     private static final String INVENTORIES_FOLDER = "inventories";
     private static final String DATABASE_FILE = "data.db";
+    private static final int DEFAULT_READ_CONNECTIONS = 3;
+    private static final int MAX_READ_CONNECTIONS = 16;
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+    private static final long READ_ACQUIRE_TIMEOUT_SECONDS = 30L;
 
     private final InventoryRestore plugin;
-    private final Object connectionLock = new Object();
-    private Connection connection;
+    private final Object writeLock = new Object();
+    private final List<Connection> readConnections = new ArrayList<>();
+    private Connection writeConnection;
+    private volatile BlockingQueue<Connection> idleReadConnections;
+    private volatile ExecutorService readExecutor;
 
     public DatabaseManager(InventoryRestore plugin) {
         this.plugin = plugin;
     }
 
     public void initialize() {
-        if (connection != null) {
+        if (writeConnection != null) {
             return;
         }
 
@@ -41,34 +56,71 @@ public final class DatabaseManager {
 
             File databaseFile = new File(inventoriesFolder, DATABASE_FILE);
             String jdbcUrl = "jdbc:sqlite:" + databaseFile.getAbsolutePath();
-            connection = DriverManager.getConnection(jdbcUrl);
-            createTables(connection);
+            writeConnection = openWriteConnection(jdbcUrl);
+            new SchemaMigrator(plugin.getLogger()).migrate(writeConnection);
+
+            int readers = Math.max(1, Math.min(MAX_READ_CONNECTIONS,
+                    plugin.getConfig().getInt("database.read-connections", DEFAULT_READ_CONNECTIONS)));
+            idleReadConnections = new ArrayBlockingQueue<>(readers);
+            for (int i = 0; i < readers; i++) {
+                Connection reader = openReadConnection(jdbcUrl);
+                readConnections.add(reader);
+                idleReadConnections.add(reader);
+            }
+            AtomicInteger readerIndex = new AtomicInteger();
+            readExecutor = Executors.newFixedThreadPool(readers, runnable -> {
+                Thread thread = CodecBuffers.newThread(runnable, "InventoryRestore-Reader-" + readerIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
         } catch (SQLException exception) {
+            shutdown();
             throw new IllegalStateException("Failed to initialize the SQLite database", exception);
         }
     }
 
-    public Connection getConnection() {
-        if (connection == null) {
-            throw new IllegalStateException("Database connection has not been initialized.");
+    public void execute(String errorMessage, SqlConsumer consumer) {
+        Connection current = requireWriteConnection();
+        synchronized (writeLock) {
+            try {
+                consumer.accept(current);
+            } catch (SQLException exception) {
+                throw new IllegalStateException(errorMessage, exception);
+            }
         }
-        return connection;
     }
 
-    public void execute(String errorMessage, SqlConsumer consumer) {
-        Connection current = getConnection();
-        synchronized (connectionLock) {
+    public void executeInTransaction(String errorMessage, SqlConsumer consumer) {
+        updateInTransaction(errorMessage, connection -> {
+            consumer.accept(connection);
+            return null;
+        });
+    }
+
+    public <T> T updateInTransaction(String errorMessage, SqlFunction<T> function) {
+        Connection current = requireWriteConnection();
+        synchronized (writeLock) {
             try {
-                consumer.accept(current);
+                current.setAutoCommit(false);
+                try {
+                    T result = function.apply(current);
+                    current.commit();
+                    return result;
+                } catch (SQLException | RuntimeException exception) {
+                    current.rollback();
+                    throw exception;
+                } finally {
+                    current.setAutoCommit(true);
+                }
             } catch (SQLException exception) {
                 throw new IllegalStateException(errorMessage, exception);
             }
         }
     }
 
-    public <T> T query(String errorMessage, SqlFunction<T> function) {
-        Connection current = getConnection();
-        synchronized (connectionLock) {
+    public <T> T update(String errorMessage, SqlFunction<T> function) {
+        Connection current = requireWriteConnection();
+        synchronized (writeLock) {
             try {
                 return function.apply(current);
             } catch (SQLException exception) {
@@ -77,139 +129,115 @@ public final class DatabaseManager {
         }
     }
 
-    public void shutdown() {
-        if (connection == null) {
-            return;
+    public <T> T query(String errorMessage, SqlFunction<T> function) {
+        BlockingQueue<Connection> idle = idleReadConnections;
+        if (idle == null) {
+            throw new IllegalStateException("Database connection has not been initialized.");
         }
 
+        Connection reader = acquireReadConnection(idle);
         try {
-            connection.close();
+            return function.apply(reader);
         } catch (SQLException exception) {
-            throw new IllegalStateException("Failed to close the SQLite database connection", exception);
+            throw new IllegalStateException(errorMessage, exception);
         } finally {
-            connection = null;
+            idle.offer(reader);
         }
     }
 
-    private void createTables(Connection connection) throws SQLException {
-        try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS death (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "death_type TEXT NOT NULL," +
-                    "death_date TEXT NOT NULL," +
-                    "uuid TEXT NOT NULL," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL," +
-                    "location TEXT," +
-                    "world TEXT," +
-                    "returned INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS disconnection (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "event_date TEXT NOT NULL," +
-                    "uuid TEXT NOT NULL," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL," +
-                    "location TEXT," +
-                    "world TEXT," +
-                    "returned INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS connection (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "event_date TEXT NOT NULL," +
-                    "uuid TEXT NOT NULL," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL," +
-                    "location TEXT," +
-                    "world TEXT," +
-                    "returned INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS world (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "from_world TEXT NOT NULL," +
-                    "to_world TEXT NOT NULL," +
-                    "event_date TEXT NOT NULL," +
-                    "uuid TEXT NOT NULL," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL," +
-                    "returned INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS teleport (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "from_location TEXT NOT NULL," +
-                    "to_location TEXT NOT NULL," +
-                    "event_date TEXT NOT NULL," +
-                    "uuid TEXT NOT NULL," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL," +
-                    "returned INTEGER NOT NULL DEFAULT 0" +
-                    ")");
-
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS pending_inventory (" +
-                    "uuid TEXT PRIMARY KEY," +
-                    "nickname TEXT NOT NULL," +
-                    "inventory TEXT NOT NULL" +
-                    ")");
-        }
-
-        ensureColumn(connection, "death", "returned", "INTEGER NOT NULL DEFAULT 0");
-        ensureColumn(connection, "death", "location", "TEXT");
-        ensureColumn(connection, "death", "world", "TEXT");
-        ensureColumn(connection, "connection", "returned", "INTEGER NOT NULL DEFAULT 0");
-        ensureColumn(connection, "disconnection", "returned", "INTEGER NOT NULL DEFAULT 0");
-        ensureColumn(connection, "connection", "location", "TEXT");
-        ensureColumn(connection, "connection", "world", "TEXT");
-        ensureColumn(connection, "disconnection", "location", "TEXT");
-        ensureColumn(connection, "disconnection", "world", "TEXT");
-        ensureColumn(connection, "teleport", "from_location", "TEXT");
-        ensureColumn(connection, "teleport", "to_location", "TEXT");
-        ensureColumn(connection, "teleport", "event_date", "TEXT");
-        ensureColumn(connection, "teleport", "uuid", "TEXT");
-        ensureColumn(connection, "teleport", "nickname", "TEXT");
-        ensureColumn(connection, "teleport", "inventory", "TEXT");
-        ensureColumn(connection, "teleport", "returned", "INTEGER NOT NULL DEFAULT 0");
-        ensureColumn(connection, "world", "from_world", "TEXT");
-        ensureColumn(connection, "world", "to_world", "TEXT");
-        ensureColumn(connection, "world", "event_date", "TEXT");
-        ensureColumn(connection, "world", "uuid", "TEXT");
-        ensureColumn(connection, "world", "nickname", "TEXT");
-        ensureColumn(connection, "world", "inventory", "TEXT");
-        ensureColumn(connection, "world", "returned", "INTEGER NOT NULL DEFAULT 0");
-        ensureColumn(connection, "connection", "event_date", "TEXT");
-        ensureColumn(connection, "connection", "uuid", "TEXT");
-        ensureColumn(connection, "connection", "nickname", "TEXT");
-        ensureColumn(connection, "connection", "inventory", "TEXT");
-        ensureColumn(connection, "disconnection", "event_date", "TEXT");
-        ensureColumn(connection, "disconnection", "uuid", "TEXT");
-        ensureColumn(connection, "disconnection", "nickname", "TEXT");
-        ensureColumn(connection, "disconnection", "inventory", "TEXT");
-        synchronizeReturnedFlag(connection);
+    public Executor readExecutor() {
+        ExecutorService executor = readExecutor;
+        if (executor == null) {
+            throw new IllegalStateException("Database connection has not been initialized.");
+        }
+        return executor;
     }
 
-    private void ensureColumn(Connection connection, String table, String column, String definition) throws SQLException {
-        DatabaseMetaData metaData = connection.getMetaData();
-        try (ResultSet resultSet = metaData.getColumns(null, null, table, column)) {
-            if (resultSet.next()) {
-                return;
+    public void shutdown() {
+        SQLException failure = null;
+
+        ExecutorService executor = readExecutor;
+        readExecutor = null;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+
+        idleReadConnections = null;
+        for (Connection reader : readConnections) {
+            try {
+                reader.close();
+            } catch (SQLException exception) {
+                failure = exception;
             }
         }
+        readConnections.clear();
+
+        if (writeConnection != null) {
+            synchronized (writeLock) {
+                try (Statement statement = writeConnection.createStatement()) {
+                    statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+                } catch (SQLException exception) {
+                    failure = exception;
+                }
+                try {
+                    writeConnection.close();
+                } catch (SQLException exception) {
+                    failure = exception;
+                } finally {
+                    writeConnection = null;
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException("Failed to close the SQLite database connections", failure);
+        }
+    }
 
+    private Connection openWriteConnection(String jdbcUrl) throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl);
         try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            statement.execute("PRAGMA journal_mode = WAL");
+            statement.execute("PRAGMA synchronous = NORMAL");
         }
+        return connection;
     }
 
-    private void synchronizeReturnedFlag(Connection connection) throws SQLException {
+    private Connection openReadConnection(String jdbcUrl) throws SQLException {
+        Connection connection = DriverManager.getConnection(jdbcUrl);
         try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate("UPDATE death SET returned = 1 WHERE LOWER(inventory) = 'returned'");
-            statement.executeUpdate("UPDATE connection SET returned = 1 WHERE LOWER(inventory) = 'returned'");
-            statement.executeUpdate("UPDATE disconnection SET returned = 1 WHERE LOWER(inventory) = 'returned'");
-            statement.executeUpdate("UPDATE world SET returned = 1 WHERE LOWER(inventory) = 'returned'");
-            statement.executeUpdate("UPDATE teleport SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            statement.execute("PRAGMA query_only = ON");
+        }
+        return connection;
+    }
+
+    private Connection requireWriteConnection() {
+        if (writeConnection == null) {
+            throw new IllegalStateException("Database connection has not been initialized.");
+        }
+        return writeConnection;
+    }
+
+    private Connection acquireReadConnection(BlockingQueue<Connection> idle) {
+        try {
+            Connection reader = idle.poll(READ_ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (reader == null) {
+                throw new IllegalStateException("Timed out waiting for a read connection.");
+            }
+            return reader;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a read connection.", exception);
         }
     }
 
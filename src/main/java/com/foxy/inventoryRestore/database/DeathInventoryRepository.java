@@ -2,103 +2,97 @@ package com.foxy.inventoryRestore.database;
 
 import com.foxy.inventoryRestore.database.record.DeathRecord;
 import com.foxy.inventoryRestore.database.record.StoredDeathInventory;
-
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.util.DateFormats;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 public final class DeathInventoryRepository {
 
+    private static final String HEADER_COLUMNS = "id, death_type, event_date, uuid, nickname, location, world, returned, item_count, slot_count, notable_materials";
+    private static final String COLUMNS = HEADER_COLUMNS + ", inventory";
+
     private final DatabaseManager databaseManager;
+    private final WriteBehindBuffer writeBuffer;
+    private final ItemStackStore itemStore;
 
-    public DeathInventoryRepository(DatabaseManager databaseManager) {
+    public DeathInventoryRepository(DatabaseManager databaseManager, WriteBehindBuffer writeBuffer, ItemStackStore itemStore) {
         this.databaseManager = databaseManager;
+        this.writeBuffer = writeBuffer;
+        this.itemStore = itemStore;
     }
 
     public void save(DeathRecord record) {
-        String sql = "INSERT INTO death (death_type, death_date, uuid, nickname, inventory, location, world, returned) VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
-
-        databaseManager.execute("Failed to store death record", connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, record.deathType());
-                statement.setString(2, record.deathDate());
-                statement.setString(3, record.uuid());
-                statement.setString(4, record.nickname());
-                statement.setString(5, record.inventory());
-                statement.setString(6, record.location());
-                statement.setString(7, record.world());
-                statement.executeUpdate();
-            }
-        });
-    }
-
-    public List<String> findAllNicknames() {
-        String sql = "SELECT DISTINCT nickname FROM death WHERE nickname IS NOT NULL AND TRIM(nickname) <> '' " +
-                "ORDER BY nickname COLLATE NOCASE";
-
-        return databaseManager.query("Failed to fetch player nicknames", connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet resultSet = statement.executeQuery()) {
-                List<String> names = new ArrayList<>();
-                while (resultSet.next()) {
-                    names.add(resultSet.getString("nickname"));
-                }
-                return names;
-            }
+        String sql = "INSERT INTO " + InventoryEventRepository.TABLE + " (type, death_type, event_date, uuid, nickname, inventory, location, world, event_time, item_count, slot_count, notable_materials, returned) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+        long eventTime = DateFormats.recordDateToEpochMillis(record.deathDate());
+        writeBuffer.submit("death record for " + record.nickname(), sql, statement -> {
+            statement.setString(1, InventoryRecordType.DEATH.key());
+            statement.setString(2, record.deathType());
+            statement.setString(3, record.deathDate());
+            statement.setString(4, record.uuid());
+            statement.setString(5, record.nickname());
+            statement.setBytes(6, itemStore.intern(statement.getConnection(), record.inventory()));
+            statement.setString(7, record.location());
+            statement.setString(8, record.world());
+            statement.setLong(9, eventTime);
+            InventoryPayloads.bindSummary(statement, 10, record.summary());
         });
     }
 
     public Optional<StoredDeathInventory> findLatest(String nickname) {
-        String sql = "SELECT id, death_type, death_date, uuid, nickname, inventory, location, world, returned FROM death " +
-                "WHERE nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT 1";
+        String sql = "SELECT " + COLUMNS + " FROM " + InventoryEventRepository.TABLE +
+                " WHERE type = ? AND nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT 1";
 
         return databaseManager.query("Failed to fetch stored death inventory", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
+                statement.setString(1, InventoryRecordType.DEATH.key());
+                statement.setString(2, nickname);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return Optional.empty();
                     }
 
-                    return Optional.of(mapRecord(resultSet));
+                    return Optional.of(mapRecord(connection, resultSet, true));
                 }
             }
         });
     }
 
     public void markInventoryReturned(long id) {
-        String sql = "UPDATE death SET returned = 1 WHERE id = ?";
+        String sql = "UPDATE " + InventoryEventRepository.TABLE + " SET returned = 1 WHERE type = ? AND id = ?";
 
         databaseManager.execute("Failed to mark inventory as returned", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
+                statement.setString(1, InventoryRecordType.DEATH.key());
+                statement.setLong(2, id);
                 statement.executeUpdate();
             }
         });
     }
 
-    public List<StoredDeathInventory> findByNickname(String nickname, int limit, int offset) {
-        String sql = "SELECT id, death_type, death_date, uuid, nickname, inventory, location, world, returned FROM death " +
-                "WHERE nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT ? OFFSET ?";
+    public List<StoredDeathInventory> findByNickname(String nickname, int limit, long beforeId) {
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM " + InventoryEventRepository.TABLE +
+                " WHERE type = ? AND nickname = ? COLLATE NOCASE AND id < ? ORDER BY id DESC LIMIT ?";
 
         int safeLimit = Math.max(0, limit);
-        int safeOffset = Math.max(0, offset);
 
         return databaseManager.query("Failed to fetch stored death inventories", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
-                statement.setInt(2, safeLimit);
-                statement.setInt(3, safeOffset);
+                statement.setString(1, InventoryRecordType.DEATH.key());
+                statement.setString(2, nickname);
+                statement.setLong(3, beforeId);
+                statement.setInt(4, safeLimit);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     List<StoredDeathInventory> inventories = new ArrayList<>();
                     while (resultSet.next()) {
-                        inventories.add(mapRecord(resultSet));
+                        inventories.add(mapRecord(connection, resultSet, false));
                     }
                     return inventories;
                 }
@@ -107,11 +101,12 @@ public final class DeathInventoryRepository {
     }
 
     public int countByNickname(String nickname) {
-        String sql = "SELECT COUNT(*) FROM death WHERE nickname = ? COLLATE NOCASE";
+        String sql = "SELECT records FROM " + InventoryEventRepository.COUNTER_TABLE + " WHERE type = ? AND nickname = ?";
 
         return databaseManager.query("Failed to count death records", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
+                statement.setString(1, InventoryRecordType.DEATH.key());
+                statement.setString(2, nickname);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return 0;
@@ -123,82 +118,41 @@ public final class DeathInventoryRepository {
     }
 
     public Optional<StoredDeathInventory> findById(long id) {
-        String sql = "SELECT id, death_type, death_date, uuid, nickname, inventory, location, world, returned FROM death WHERE id = ?";
+        String sql = "SELECT " + COLUMNS + " FROM " + InventoryEventRepository.TABLE +
+                " WHERE type = ? AND id = ?";
 
         return databaseManager.query("Failed to fetch stored death inventory", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
+                statement.setString(1, InventoryRecordType.DEATH.key());
+                statement.setLong(2, id);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return Optional.empty();
                     }
-                    return Optional.of(mapRecord(resultSet));
+                    return Optional.of(mapRecord(connection, resultSet, true));
                 }
             }
         });
     }
 
     public void delete(long id) {
-        String sql = "DELETE FROM death WHERE id = ?";
-
-        databaseManager.execute("Failed to delete death inventory", connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
-                statement.executeUpdate();
-            }
-        });
-    }
-
-    public boolean hasRecords(String nickname) {
-        String sql = "SELECT 1 FROM death WHERE nickname = ? COLLATE NOCASE LIMIT 1";
-
-        return databaseManager.query("Failed to determine if death records exist", connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    return resultSet.next();
-                }
-            }
-        });
-    }
-
-    public int deleteOlderThan(LocalDateTime threshold) {
-        String whereClause = buildCleanupClause("death_date");
-        String sql = "DELETE FROM death WHERE " + whereClause;
-        String thresholdValue = threshold.format(DateFormats.SQLITE_DATE_TIME);
-
-        return databaseManager.query("Failed to delete expired death records", connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, thresholdValue);
-                return statement.executeUpdate();
-            }
-        });
-    }
-
-    private static String buildCleanupClause(String column) {
-        String normalized = normalizeDate(column);
-        return column + " IS NULL OR TRIM(" + column + ") = '' OR "
-                + "strftime('%s', " + normalized + ") IS NULL OR "
-                + "strftime('%s', " + normalized + ") < strftime('%s', ?)";
-    }
-
-    private static String normalizeDate(String column) {
-        return "'20' || substr(" + column + ", 7, 2) || '-' || substr(" + column + ", 4, 2) || '-' || substr(" + column + ", 1, 2) || ' ' || substr(" + column + ", 10)";
+        databaseManager.executeInTransaction("Failed to delete death inventory", connection ->
+                itemStore.deleteAndRelease(connection, InventoryEventRepository.TABLE, "type = ? AND id = ?", statement -> {
+                    statement.setString(1, InventoryRecordType.DEATH.key());
+                    statement.setLong(2, id);
+                }));
     }
 
-    private StoredDeathInventory mapRecord(ResultSet resultSet) throws SQLException {
+    StoredDeathInventory mapRecord(Connection connection, ResultSet resultSet, boolean withPayload) throws SQLException {
         long id = resultSet.getLong("id");
         String deathType = resultSet.getString("death_type");
-        String deathDate = resultSet.getString("death_date");
+        String deathDate = resultSet.getString("event_date");
         String uuid = resultSet.getString("uuid");
         String storedNickname = resultSet.getString("nickname");
-        String inventory = resultSet.getString("inventory");
+        byte[] inventory = withPayload ? itemStore.resolve(connection, resultSet.getBytes("inventory")) : null;
         String location = resultSet.getString("location");
         String world = resultSet.getString("world");
-        boolean returned = resultSet.getInt("returned") == 1 || "returned".equalsIgnoreCase(inventory);
-        if (returned && "returned".equalsIgnoreCase(inventory)) {
-            inventory = "returned";
-        }
-        return new StoredDeathInventory(id, deathType, deathDate, uuid, storedNickname, inventory, returned, location, world);
+        boolean returned = resultSet.getInt("returned") == 1 || InventoryPayloads.isReturnedMarker(inventory);
+        return new StoredDeathInventory(id, deathType, deathDate, uuid, storedNickname, inventory, returned, location, world, InventoryPayloads.readSummary(resultSet));
     }
 }
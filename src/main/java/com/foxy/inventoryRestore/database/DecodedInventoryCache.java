@@ -0,0 +1,89 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.database.record.DecodedRecord;
+import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public final class DecodedInventoryCache {
+
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(64, 0.75F, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DecodedInventoryCache(long maxBytes) {
+        this.maxBytes = Math.max(0L, maxBytes);
+    }
+
+    public synchronized Optional<DecodedRecord> get(InventoryRecordType type, long id) {
+        Entry cached = entries.get(new Key(type, id));
+        if (cached == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(cached.record());
+    }
+
+    public synchronized void put(InventoryRecordType type, long id, DecodedRecord record) {
+        long weight = weight(record);
+        if (weight > maxBytes) {
+            return;
+        }
+        Entry previous = entries.put(new Key(type, id), new Entry(record, weight));
+        if (previous != null) {
+            bytes -= previous.weight();
+        }
+        bytes += weight;
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().weight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(InventoryRecordType type, long id) {
+        Entry removed = entries.remove(new Key(type, id));
+        if (removed != null) {
+            bytes -= removed.weight();
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        bytes = 0L;
+    }
+
+    public synchronized Statistics statistics() {
+        return new Statistics(hits, misses, evictions, entries.size(), bytes, maxBytes);
+    }
+
+    private static long weight(DecodedRecord record) {
+        byte[] payload = record.record().inventory();
+        long stored = payload == null ? 0L : payload.length;
+        return stored + record.inventory().map(SerializedInventory::estimatedHeapBytes).orElse(0L);
+    }
+
+    private record Key(InventoryRecordType type, long id) {
+    }
+
+    private record Entry(DecodedRecord record, long weight) {
+    }
+
+    public record Statistics(long hits, long misses, long evictions, int entries, long bytes, long maxBytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0L ? 0.0D : hits * 100.0D / lookups;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
+import com.foxy.inventoryRestore.inventory.SlotDelta;
+import com.foxy.inventoryRestore.inventory.SlotTable;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class DeltaSnapshotStore {
+
+    private static final int CACHE_SIZE = 512;
+    private static final int MAX_KEYFRAME_INTERVAL = 64;
+    private static final String TABLE = InventoryEventRepository.TABLE;
+
+    private final ItemStackStore itemStore;
+    private final int keyframeInterval;
+    private final Map<Long, CachedTable> cache = new LinkedHashMap<>(64, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CachedTable> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public DeltaSnapshotStore(ItemStackStore itemStore, int keyframeInterval) {
+        this.itemStore = itemStore;
+        this.keyframeInterval = Math.max(1, Math.min(MAX_KEYFRAME_INTERVAL, keyframeInterval));
+    }
+
+    public Encoded encode(Connection connection, InventoryRecordType type, String uuid, SnapshotPayload payload) throws SQLException {
+        PreviousRow previous = findPrevious(connection, type, uuid);
+        if (payload.unchanged() && previous != null && previous.fingerprint() != null
+                && previous.fingerprint() == payload.fingerprint() && InventoryCodec.isReference(previous.row().payload())) {
+            return repeat(connection, previous);
+        }
+
+        ItemStackStore.PreparedInventory prepared = itemStore.prepare(payload.serialized());
+        Encoded encoded = chooseEncoding(connection, previous, prepared.references());
+        itemStore.retain(connection, prepared, encoded.payload());
+        return encoded;
+    }
+
+    public static String chainKey(InventoryRecordType type, String uuid) {
+        return type.key() + ':' + uuid;
+    }
+
+    public byte[] resolve(Connection connection, long id, long deltaBase, byte[] payload) throws SQLException {
+        if (InventoryCodec.format(payload) != InventoryCodec.FORMAT_ITEM_DELTA) {
+            return itemStore.resolve(connection, payload);
+        }
+        byte[] references = InventoryCodec.encodeReferences(reconstruct(connection, id, deltaBase, payload).toBytes());
+        return itemStore.resolve(connection, references);
+    }
+
+    public int deleteAndRelease(Connection connection, String whereClause, WriteBehindBuffer.StatementBinder binder) throws SQLException {
+        Set<Long> deleted = new HashSet<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT id FROM " + TABLE + " WHERE " + whereClause)) {
+            binder.bind(select);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    deleted.add(resultSet.getLong(1));
+                }
+            }
+        }
+        if (deleted.isEmpty()) {
+            return 0;
+        }
+
+        List<ChainRow> dependents = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, inventory, delta_base FROM " + TABLE + " WHERE delta_base = ?")) {
+            for (long id : deleted) {
+                select.setLong(1, id);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        long dependent = resultSet.getLong(1);
+                        if (!deleted.contains(dependent)) {
+                            dependents.add(new ChainRow(dependent, resultSet.getBytes(2), resultSet.getLong(3)));
+                        }
+                    }
+                }
+            }
+        }
+        for (ChainRow dependent : dependents) {
+            rebase(connection, dependent);
+        }
+
+        int removed = itemStore.deleteAndRelease(connection, TABLE, whereClause, binder);
+        synchronized (cache) {
+            cache.keySet().removeAll(deleted);
+        }
+        return removed;
+    }
+
+    private PreviousRow findPrevious(Connection connection, InventoryRecordType type, String uuid) throws SQLException {
+        String sql = "SELECT id, inventory, delta_base, delta_depth, fingerprint FROM " + TABLE + " WHERE type = ? AND uuid = ? ORDER BY id DESC LIMIT 1";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, type.key());
+            statement.setString(2, uuid);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                long fingerprint = resultSet.getLong(5);
+                Long storedFingerprint = resultSet.wasNull() ? null : fingerprint;
+                return new PreviousRow(new ChainRow(resultSet.getLong(1), resultSet.getBytes(2), resultSet.getLong(3)), resultSet.getInt(4), storedFingerprint);
+            }
+        }
+    }
+
+    private Encoded repeat(Connection connection, PreviousRow previous) throws SQLException {
+        ChainRow row = previous.row();
+        if (keyframeInterval > 1 && previous.depth() + 1 < keyframeInterval) {
+            SlotTable base = reconstruct(connection, row.id(), row.deltaBase(), row.payload());
+            return new Encoded(InventoryCodec.encodeDelta(SlotDelta.diff(base, base)), row.id(), previous.depth() + 1);
+        }
+        itemStore.retain(connection, new ItemStackStore.PreparedInventory(row.payload(), Map.of()), row.payload());
+        return new Encoded(row.payload(), row.deltaBase(), previous.depth());
+    }
+
+    private Encoded chooseEncoding(Connection connection, PreviousRow previous, byte[] references) throws SQLException {
+        if (keyframeInterval <= 1 || InventoryCodec.format(references) != InventoryCodec.FORMAT_ITEM_REFS || previous == null) {
+            return new Encoded(references, 0L, 0);
+        }
+
+        ChainRow row = previous.row();
+        if (previous.depth() + 1 >= keyframeInterval || !InventoryCodec.isReference(row.payload())) {
+            return new Encoded(references, 0L, 0);
+        }
+
+        SlotTable base = reconstruct(connection, row.id(), row.deltaBase(), row.payload());
+        SlotTable target = SlotTable.fromBytes(InventoryCodec.decode(references));
+        if (SlotDelta.changedSlots(base, target) * 2 > SlotDelta.slotCount(target)) {
+            return new Encoded(references, 0L, 0);
+        }
+        return new Encoded(InventoryCodec.encodeDelta(SlotDelta.diff(base, target)), row.id(), previous.depth() + 1);
+    }
+
+    private SlotTable reconstruct(Connection connection, long id, long deltaBase, byte[] payload) throws SQLException {
+        synchronized (cache) {
+            CachedTable cached = cache.get(id);
+            if (cached != null && cached.deltaBase() == deltaBase && Arrays.equals(cached.payload(), payload)) {
+                return cached.table();
+            }
+        }
+
+        SlotTable reconstructed;
+        if (InventoryCodec.format(payload) == InventoryCodec.FORMAT_ITEM_DELTA) {
+            SlotTable base = load(connection, deltaBase);
+            reconstructed = SlotDelta.apply(base, InventoryCodec.decode(payload));
+        } else {
+            reconstructed = SlotTable.fromBytes(InventoryCodec.decode(payload));
+        }
+
+        synchronized (cache) {
+            cache.put(id, new CachedTable(payload, deltaBase, reconstructed));
+        }
+        return reconstructed;
+    }
+
+    private SlotTable load(Connection connection, long id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT inventory, delta_base FROM " + TABLE + " WHERE id = ?")) {
+            statement.setLong(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new IllegalStateException("Snapshot chain is missing record " + id);
+                }
+                return reconstruct(connection, id, resultSet.getLong(2), resultSet.getBytes(1));
+            }
+        }
+    }
+
+    private void rebase(Connection connection, ChainRow row) throws SQLException {
+        SlotTable full = reconstruct(connection, row.id(), row.deltaBase(), row.payload());
+        byte[] keyframe = InventoryCodec.encodeReferences(full.toBytes());
+        itemStore.retain(connection, new ItemStackStore.PreparedInventory(keyframe, Map.of()), keyframe);
+        itemStore.release(connection, row.payload());
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE " + TABLE + " SET inventory = ?, delta_base = NULL, delta_depth = 0 WHERE id = ?")) {
+            statement.setBytes(1, keyframe);
+            statement.setLong(2, row.id());
+            statement.executeUpdate();
+        }
+    }
+
+    public record Encoded(byte[] payload, long base, int depth) {
+
+        public void bind(PreparedStatement statement, int payloadIndex, int baseIndex, int depthIndex) throws SQLException {
+            statement.setBytes(payloadIndex, payload);
+            if (base == 0L) {
+                statement.setNull(baseIndex, Types.INTEGER);
+            } else {
+                statement.setLong(baseIndex, base);
+            }
+            statement.setInt(depthIndex, depth);
+        }
+    }
+
+    private record ChainRow(long id, byte[] payload, long deltaBase) {
+    }
+
+    private record PreviousRow(ChainRow row, int depth, Long fingerprint) {
+    }
+
+    private record CachedTable(byte[] payload, long deltaBase, SlotTable table) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.logging.Logger;
+
+public final class InventoryBlobMigration {
+
+    private static final int CHUNK_SIZE = 250;
+    private static final String[] TABLES = {InventoryEventRepository.TABLE};
+
+    private final DatabaseManager databaseManager;
+    private final AsyncTaskQueue taskQueue;
+    private final Logger logger;
+    private volatile boolean stopped;
+
+    public InventoryBlobMigration(DatabaseManager databaseManager, AsyncTaskQueue taskQueue, Logger logger) {
+        this.databaseManager = databaseManager;
+        this.taskQueue = taskQueue;
+        this.logger = logger;
+    }
+
+    public void start() {
+        taskQueue.execute("binary inventory conversion", () -> {
+            convertPendingInventories();
+            convertTable(0, 0L, 0);
+        });
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private void convertTable(int tableIndex, long lastId, int converted) {
+        if (stopped || tableIndex >= TABLES.length) {
+            return;
+        }
+
+        String table = TABLES[tableIndex];
+        String trackingIndex = SchemaMigrator.textInventoryIndex(table);
+        if (lastId == 0L && !indexExists(trackingIndex)) {
+            convertTable(tableIndex + 1, 0L, 0);
+            return;
+        }
+
+        List<TextInventory> chunk = databaseManager.query("Failed to read text inventories from table " + table, connection -> {
+            String sql = "SELECT id, inventory FROM " + table + " WHERE typeof(inventory) = 'text' AND id > ? ORDER BY id LIMIT ?";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, lastId);
+                statement.setInt(2, CHUNK_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<TextInventory> rows = new ArrayList<>();
+                    while (resultSet.next()) {
+                        rows.add(new TextInventory(resultSet.getLong("id"), resultSet.getString("inventory")));
+                    }
+                    return rows;
+                }
+            }
+        });
+
+        if (chunk.isEmpty()) {
+            databaseManager.execute("Failed to drop conversion index " + trackingIndex, connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("DROP INDEX IF EXISTS " + trackingIndex)) {
+                    statement.executeUpdate();
+                }
+            });
+            if (converted > 0) {
+                logger.info("Converted " + converted + " stored inventories in table " + table + " to binary storage.");
+            }
+            schedule(() -> convertTable(tableIndex + 1, 0L, 0));
+            return;
+        }
+
+        databaseManager.executeInTransaction("Failed to convert text inventories in table " + table, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE " + table + " SET inventory = ? WHERE id = ?")) {
+                for (TextInventory row : chunk) {
+                    statement.setBytes(1, toBinary(row.inventory()));
+                    statement.setLong(2, row.id());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+
+        long nextId = chunk.get(chunk.size() - 1).id();
+        int total = converted + chunk.size();
+        schedule(() -> convertTable(tableIndex, nextId, total));
+    }
+
+    private void schedule(Runnable step) {
+        if (!stopped) {
+            taskQueue.execute("binary inventory conversion", step);
+        }
+    }
+
+    private void convertPendingInventories() {
+        databaseManager.executeInTransaction("Failed to convert pending inventories", connection -> {
+            List<TextInventory> rows = new ArrayList<>();
+            String select = "SELECT rowid, inventory FROM pending_inventory WHERE typeof(inventory) = 'text'";
+            try (PreparedStatement statement = connection.prepareStatement(select);
+                 ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(new TextInventory(resultSet.getLong(1), resultSet.getString(2)));
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try (PreparedStatement statement = connection.prepareStatement("UPDATE pending_inventory SET inventory = ? WHERE rowid = ?")) {
+                for (TextInventory row : rows) {
+                    statement.setBytes(1, toBinary(row.inventory()));
+                    statement.setLong(2, row.id());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private boolean indexExists(String name) {
+        return databaseManager.query("Failed to look up index " + name, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+                statement.setString(1, name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            }
+        });
+    }
+
+    private static byte[] toBinary(String inventory) {
+        if (inventory == null || "returned".equalsIgnoreCase(inventory)) {
+            return new byte[0];
+        }
+        try {
+            return Base64.getDecoder().decode(inventory);
+        } catch (IllegalArgumentException exception) {
+            return inventory.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private record TextInventory(long id, String inventory) {
+    }
+}
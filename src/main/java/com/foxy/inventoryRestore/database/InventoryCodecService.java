@@ -0,0 +1,252 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.CodecBenchmark;
+import com.foxy.inventoryRestore.inventory.DictionaryTrainer;
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
+import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+import com.foxy.inventoryRestore.util.DateFormats;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class InventoryCodecService {
+
+    private static final int SAMPLES_PER_TABLE = 64;
+    private static final int ITEM_SAMPLES = 512;
+    private static final int MINIMUM_SAMPLES = 32;
+    private static final int REPORT_ROWS_PER_TABLE = 200;
+    private static final int BENCHMARK_ROWS = 200;
+
+    private final DatabaseManager databaseManager;
+    private final ItemStackStore itemStore;
+    private final Logger logger;
+
+    public InventoryCodecService(DatabaseManager databaseManager, ItemStackStore itemStore, Logger logger) {
+        this.databaseManager = databaseManager;
+        this.itemStore = itemStore;
+        this.logger = logger;
+    }
+
+    public void loadDictionaries() {
+        int latest = databaseManager.query("Failed to load compression dictionaries", connection -> {
+            int newest = InventoryCodec.NO_DICTIONARY;
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id, dictionary FROM codec_dictionary ORDER BY id")) {
+                while (resultSet.next()) {
+                    int id = resultSet.getInt("id");
+                    InventoryCodec.registerDictionary(id, resultSet.getBytes("dictionary"));
+                    newest = id;
+                }
+            }
+            return newest;
+        });
+        InventoryCodec.activateDictionary(latest);
+    }
+
+    public void trainIfMissing() {
+        if (InventoryCodec.activeDictionary() != InventoryCodec.NO_DICTIONARY) {
+            return;
+        }
+
+        List<byte[]> samples = collectSamples();
+        if (samples.size() < MINIMUM_SAMPLES) {
+            return;
+        }
+
+        byte[] dictionary = DictionaryTrainer.train(samples, DictionaryTrainer.MAX_DICTIONARY_SIZE);
+        if (dictionary.length == 0) {
+            return;
+        }
+
+        int id = databaseManager.update("Failed to store compression dictionary", connection -> {
+            String sql = "INSERT INTO codec_dictionary (id, dictionary, sample_count, created_at) "
+                    + "VALUES ((SELECT COALESCE(MAX(id), 0) + 1 FROM codec_dictionary), ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setBytes(1, dictionary);
+                statement.setInt(2, samples.size());
+                statement.setString(3, LocalDateTime.now().format(DateFormats.SQLITE_DATE_TIME));
+                statement.executeUpdate();
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT MAX(id) FROM codec_dictionary")) {
+                return resultSet.next() ? resultSet.getInt(1) : InventoryCodec.NO_DICTIONARY;
+            }
+        });
+
+        InventoryCodec.registerDictionary(id, dictionary);
+        InventoryCodec.activateDictionary(id);
+        logger.info("Trained compression dictionary #" + id + " (" + dictionary.length + " bytes) from "
+                + samples.size() + " stored inventories and item stacks.");
+    }
+
+    public List<TableReport> report() {
+        List<TableReport> reports = new ArrayList<>();
+        for (InventoryRecordType type : InventoryRecordType.values()) {
+            reports.add(reportTable(type.key(), InventoryEventRepository.TABLE, "inventory", type));
+        }
+        reports.add(reportTable("pending_inventory", "pending_inventory", "inventory", null));
+        reports.add(reportTable("item_stack", "item_stack", "data", null));
+        return reports;
+    }
+
+    public CodecBenchmark.Report benchmark() {
+        return CodecBenchmark.compare(sampleInventories());
+    }
+
+    private List<SerializedInventory> sampleInventories() {
+        String sql = "SELECT inventory FROM " + InventoryEventRepository.TABLE
+                + " WHERE length(inventory) > 0 ORDER BY id DESC LIMIT ?";
+        return databaseManager.query("Failed to sample inventories for the codec benchmark", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setInt(1, BENCHMARK_ROWS);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<SerializedInventory> inventories = new ArrayList<>();
+                    while (resultSet.next()) {
+                        byte[] payload = resultSet.getBytes(1);
+                        if (payload == null || InventoryPayloads.isReturnedMarker(payload)
+                                || InventoryCodec.format(payload) == InventoryCodec.FORMAT_ITEM_DELTA) {
+                            continue;
+                        }
+                        try {
+                            inventories.add(InventorySerializer.deserialize(itemStore.resolve(connection, payload)));
+                        } catch (IllegalArgumentException | IllegalStateException exception) {
+                            logger.log(Level.FINE, "Skipping unreadable inventory in codec benchmark", exception);
+                        }
+                    }
+                    return inventories;
+                }
+            }
+        });
+    }
+
+    private TableReport reportTable(String label, String table, String column, InventoryRecordType type) {
+        String sql = "SELECT " + column + " FROM " + table + " WHERE " + (type == null ? "" : "type = ? AND ")
+                + "length(" + column + ") > 0 ORDER BY rowid DESC LIMIT ?";
+        return databaseManager.query("Failed to sample inventories for " + label, connection -> {
+            long storedBytes = 0L;
+            long compressedBytes = 0L;
+            long uncompressedBytes = 0L;
+            long decodeNanos = 0L;
+            int rows = 0;
+            int compressed = 0;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int index = 1;
+                if (type != null) {
+                    statement.setString(index++, type.key());
+                }
+                statement.setInt(index, REPORT_ROWS_PER_TABLE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        byte[] payload = resultSet.getBytes(1);
+                        if (payload == null || InventoryPayloads.isReturnedMarker(payload)) {
+                            continue;
+                        }
+                        long started = System.nanoTime();
+                        byte[] raw;
+                        try {
+                            raw = InventoryCodec.decode(itemStore.resolve(connection, payload));
+                        } catch (IllegalArgumentException | IllegalStateException exception) {
+                            logger.log(Level.FINE, "Skipping unreadable inventory in " + label, exception);
+                            continue;
+                        }
+                        decodeNanos += System.nanoTime() - started;
+                        storedBytes += payload.length;
+                        rows++;
+                        if (InventoryCodec.isDictionaryCompressed(payload)) {
+                            compressedBytes += payload.length;
+                            uncompressedBytes += raw.length;
+                            compressed++;
+                        }
+                    }
+                }
+            }
+            return new TableReport(label, rows, compressed, storedBytes, compressedBytes, uncompressedBytes, decodeNanos);
+        });
+    }
+
+    private List<byte[]> collectSamples() {
+        List<byte[]> samples = new ArrayList<>();
+        for (InventoryRecordType type : InventoryRecordType.values()) {
+            for (byte[] payload : readRecentPayloads(type, SAMPLES_PER_TABLE)) {
+                if (InventoryCodec.isReference(payload)) {
+                    continue;
+                }
+                try {
+                    samples.add(InventoryCodec.decode(payload));
+                } catch (IllegalArgumentException | IllegalStateException ignored) {
+                }
+            }
+        }
+        for (byte[] data : readRecentItems(ITEM_SAMPLES)) {
+            try {
+                samples.add(InventoryCodec.decode(data));
+            } catch (IllegalArgumentException | IllegalStateException ignored) {
+            }
+        }
+        return samples;
+    }
+
+    private List<byte[]> readRecentItems(int limit) {
+        return databaseManager.query("Failed to sample stored item stacks", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT data FROM item_stack ORDER BY rowid DESC LIMIT ?")) {
+                statement.setInt(1, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<byte[]> entries = new ArrayList<>();
+                    while (resultSet.next()) {
+                        byte[] data = resultSet.getBytes(1);
+                        if (data != null && data.length > 0) {
+                            entries.add(data);
+                        }
+                    }
+                    return entries;
+                }
+            }
+        });
+    }
+
+    private List<byte[]> readRecentPayloads(InventoryRecordType type, int limit) {
+        String sql = "SELECT inventory FROM " + InventoryEventRepository.TABLE
+                + " WHERE type = ? AND length(inventory) > 0 ORDER BY id DESC LIMIT ?";
+        return databaseManager.query("Failed to sample " + type.key() + " inventories", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, type.key());
+                statement.setInt(2, limit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<byte[]> payloads = new ArrayList<>();
+                    while (resultSet.next()) {
+                        byte[] payload = resultSet.getBytes(1);
+                        if (payload != null && !InventoryPayloads.isReturnedMarker(payload)) {
+                            payloads.add(payload);
+                        }
+                    }
+                    return payloads;
+                }
+            }
+        });
+    }
+
+    public record TableReport(String table,
+                              int rows,
+                              int compressedRows,
+                              long storedBytes,
+                              long compressedBytes,
+                              long uncompressedBytes,
+                              long decodeNanos) {
+
+        public double ratio() {
+            return compressedBytes == 0L ? 0.0D : uncompressedBytes / (double) compressedBytes;
+        }
+
+        public double averageDecodeMicros() {
+            return rows == 0 ? 0.0D : decodeNanos / 1000.0D / rows;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.database.record.StoredInventoryRecord;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+import com.foxy.inventoryRestore.util.DateFormats;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public final class InventoryEventRepository {
+
+    static final String TABLE = "inventory_event";
+    static final String COUNTER_TABLE = "record_counter";
+    static final String HEADER_COLUMNS = "id, type, event_date, uuid, nickname, returned, "
+            + "death_type, location, world, from_world, to_world, from_location, to_location, item_count, slot_count, notable_materials";
+    static final String COLUMNS = HEADER_COLUMNS + ", inventory, delta_base";
+
+    private final DatabaseManager databaseManager;
+    private final DeltaSnapshotStore deltaStore;
+    private final DeathInventoryRepository deathRepository;
+    private final PlayerSnapshotRepository snapshotRepository;
+    private final WorldChangeRepository worldRepository;
+    private final TeleportRepository teleportRepository;
+
+    public InventoryEventRepository(DatabaseManager databaseManager,
+                                    DeltaSnapshotStore deltaStore,
+                                    DeathInventoryRepository deathRepository,
+                                    PlayerSnapshotRepository snapshotRepository,
+                                    WorldChangeRepository worldRepository,
+                                    TeleportRepository teleportRepository) {
+        this.databaseManager = databaseManager;
+        this.deltaStore = deltaStore;
+        this.deathRepository = deathRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.worldRepository = worldRepository;
+        this.teleportRepository = teleportRepository;
+    }
+
+    public List<StoredInventoryRecord> findTimeline(String nickname, int limit, long beforeId) {
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM " + TABLE + " WHERE nickname = ? COLLATE NOCASE AND id < ? ORDER BY id DESC LIMIT ?";
+
+        int safeLimit = Math.max(0, limit);
+
+        return databaseManager.query("Failed to fetch inventory timeline", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, nickname);
+                statement.setLong(2, beforeId);
+                statement.setInt(3, safeLimit);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<StoredInventoryRecord> records = new ArrayList<>();
+                    while (resultSet.next()) {
+                        records.add(mapRecord(connection, resultSet, false));
+                    }
+                    return records;
+                }
+            }
+        });
+    }
+
+    public int countByNickname(String nickname) {
+        String sql = "SELECT COALESCE(SUM(records), 0) FROM " + COUNTER_TABLE + " WHERE nickname = ?";
+
+        return databaseManager.query("Failed to count inventory events", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, nickname);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return 0;
+                    }
+                    return resultSet.getInt(1);
+                }
+            }
+        });
+    }
+
+    public Map<InventoryRecordType, Integer> countByType(String nickname) {
+        String sql = "SELECT type, records FROM " + COUNTER_TABLE + " WHERE nickname = ?";
+
+        return databaseManager.query("Failed to count inventory events", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, nickname);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Map<InventoryRecordType, Integer> counts = new EnumMap<>(InventoryRecordType.class);
+                    while (resultSet.next()) {
+                        counts.put(InventoryRecordType.fromKey(resultSet.getString("type")), resultSet.getInt("records"));
+                    }
+                    return counts;
+                }
+            }
+        });
+    }
+
+    public List<String> findAllNicknames() {
+        String sql = "SELECT nickname FROM " + COUNTER_TABLE + " WHERE nickname <> '' GROUP BY nickname ORDER BY nickname";
+
+        return databaseManager.query("Failed to fetch player nicknames", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                List<String> names = new ArrayList<>();
+                while (resultSet.next()) {
+                    names.add(resultSet.getString("nickname"));
+                }
+                return names;
+            }
+        });
+    }
+
+    public boolean updateReturned(InventoryRecordType type, long id, boolean returned) {
+        String sql = "UPDATE " + TABLE + " SET returned = ? WHERE type = ? AND id = ? AND returned = ?";
+
+        return databaseManager.update("Failed to update returned flag", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setInt(1, returned ? 1 : 0);
+                statement.setString(2, type.key());
+                statement.setLong(3, id);
+                statement.setInt(4, returned ? 0 : 1);
+                return statement.executeUpdate() == 1;
+            }
+        });
+    }
+
+    public int deleteOlderThan(LocalDateTime threshold, int limit) {
+        long thresholdMillis = DateFormats.toEpochMillis(threshold);
+        int safeLimit = Math.max(1, limit);
+        String whereClause = "id IN (SELECT id FROM " + TABLE + " WHERE event_time < ? ORDER BY event_time, id LIMIT ?)";
+
+        return databaseManager.updateInTransaction("Failed to delete expired inventory events", connection ->
+                deltaStore.deleteAndRelease(connection, whereClause, statement -> {
+                    statement.setLong(1, thresholdMillis);
+                    statement.setInt(2, safeLimit);
+                }));
+    }
+
+    public List<StoredInventoryRecord> findUnsummarized(long afterId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM " + TABLE + " WHERE item_count IS NULL AND typeof(inventory) <> 'text' AND id > ? ORDER BY id LIMIT ?";
+
+        return databaseManager.query("Failed to fetch unsummarized inventory events", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, afterId);
+                statement.setInt(2, Math.max(1, limit));
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    List<StoredInventoryRecord> records = new ArrayList<>();
+                    while (resultSet.next()) {
+                        records.add(mapRecord(connection, resultSet, true));
+                    }
+                    return records;
+                }
+            }
+        });
+    }
+
+    public void updateSummaries(Map<Long, InventorySummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE " + TABLE + " SET item_count = ?, slot_count = ?, notable_materials = ? WHERE id = ?";
+
+        databaseManager.executeInTransaction("Failed to store inventory summaries", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<Long, InventorySummary> entry : summaries.entrySet()) {
+                    InventoryPayloads.bindSummary(statement, 1, entry.getValue());
+                    statement.setLong(4, entry.getKey());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    private StoredInventoryRecord mapRecord(Connection connection, ResultSet resultSet, boolean withPayload) throws SQLException {
+        InventoryRecordType type = InventoryRecordType.fromKey(resultSet.getString("type"));
+        return switch (type) {
+            case DEATH -> deathRepository.mapRecord(connection, resultSet, withPayload);
+            case WORLD -> worldRepository.mapRecord(connection, resultSet, withPayload);
+            case TELEPORT -> teleportRepository.mapRecord(connection, resultSet, withPayload);
+            case CONNECTION, DISCONNECTION -> snapshotRepository.mapRecord(connection, resultSet, type, withPayload);
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.InventorySummary;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+final class InventoryPayloads {
+
+    private static final byte[] RETURNED_MARKER = "returned".getBytes(StandardCharsets.US_ASCII);
+
+    private InventoryPayloads() {
+    }
+
+    static boolean isReturnedMarker(byte[] inventory) {
+        if (inventory == null || inventory.length != RETURNED_MARKER.length) {
+            return false;
+        }
+        for (int i = 0; i < inventory.length; i++) {
+            if (Character.toLowerCase((char) inventory[i]) != RETURNED_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static InventorySummary readSummary(ResultSet resultSet) throws SQLException {
+        int itemCount = resultSet.getInt("item_count");
+        if (resultSet.wasNull()) {
+            return null;
+        }
+        return InventorySummary.fromColumns(itemCount, resultSet.getInt("slot_count"), resultSet.getString("notable_materials"));
+    }
+
+    static void bindSummary(PreparedStatement statement, int firstIndex, InventorySummary summary) throws SQLException {
+        statement.setInt(firstIndex, summary.itemCount());
+        statement.setInt(firstIndex + 1, summary.slotCount());
+        statement.setString(firstIndex + 2, summary.materialsColumn());
+    }
+}
@@ -0,0 +1,200 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.database.record.DecodedRecord;
+import com.foxy.inventoryRestore.database.record.StoredInventoryRecord;
+import com.foxy.inventoryRestore.database.record.StoredPendingInventory;
+import com.foxy.inventoryRestore.database.record.StoredPlayerInventory;
+import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+import com.foxy.inventoryRestore.util.MainThreadExecutor;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class InventoryStorage {
+
+    private final AsyncTaskQueue taskQueue;
+    private final Executor readExecutor;
+    private final Logger logger;
+    private final MainThreadExecutor mainThread;
+    private final DeathInventoryRepository deathRepository;
+    private final PlayerSnapshotRepository snapshotRepository;
+    private final WorldChangeRepository worldRepository;
+    private final TeleportRepository teleportRepository;
+    private final PendingInventoryRepository pendingRepository;
+    private final InventoryEventRepository eventRepository;
+    private final DecodedInventoryCache decodedCache;
+
+    public InventoryStorage(AsyncTaskQueue taskQueue,
+                            Executor readExecutor,
+                            Logger logger,
+                            MainThreadExecutor mainThread,
+                            DeathInventoryRepository deathRepository,
+                            PlayerSnapshotRepository snapshotRepository,
+                            WorldChangeRepository worldRepository,
+                            TeleportRepository teleportRepository,
+                            PendingInventoryRepository pendingRepository,
+                            InventoryEventRepository eventRepository,
+                            DecodedInventoryCache decodedCache) {
+        this.taskQueue = taskQueue;
+        this.readExecutor = readExecutor;
+        this.logger = logger;
+        this.mainThread = mainThread;
+        this.deathRepository = deathRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.worldRepository = worldRepository;
+        this.teleportRepository = teleportRepository;
+        this.pendingRepository = pendingRepository;
+        this.eventRepository = eventRepository;
+        this.decodedCache = decodedCache;
+    }
+
+    public <T> CompletableFuture<T> sync(CompletableFuture<T> future) {
+        return mainThread.sync(future);
+    }
+
+    public <T, R> CompletableFuture<R> render(CompletableFuture<T> future, String description, Function<T, R> renderer) {
+        return future.thenCompose(value -> read(description, () -> renderer.apply(value)));
+    }
+
+    public CompletableFuture<List<StoredInventoryRecord>> findRecords(InventoryRecordType type, String nickname, int limit, long beforeId) {
+        return read("load " + type.key() + " records for " + nickname, () -> Collections.unmodifiableList(switch (type) {
+            case DEATH -> deathRepository.findByNickname(nickname, limit, beforeId);
+            case WORLD -> worldRepository.findByNickname(nickname, limit, beforeId);
+            case TELEPORT -> teleportRepository.findByNickname(nickname, limit, beforeId);
+            case CONNECTION, DISCONNECTION -> snapshotRepository.findByNickname(nickname, type, limit, beforeId);
+        }));
+    }
+
+    public CompletableFuture<Integer> countRecords(InventoryRecordType type, String nickname) {
+        return read("count " + type.key() + " records for " + nickname, () -> switch (type) {
+            case DEATH -> deathRepository.countByNickname(nickname);
+            case WORLD -> worldRepository.countByNickname(nickname);
+            case TELEPORT -> teleportRepository.countByNickname(nickname);
+            case CONNECTION, DISCONNECTION -> snapshotRepository.countByNickname(nickname, type);
+        });
+    }
+
+    public CompletableFuture<List<StoredInventoryRecord>> findTimeline(String nickname, int limit, long beforeId) {
+        return read("load timeline for " + nickname, () -> Collections.unmodifiableList(eventRepository.findTimeline(nickname, limit, beforeId)));
+    }
+
+    public CompletableFuture<Integer> countTimeline(String nickname) {
+        return read("count timeline for " + nickname, () -> eventRepository.countByNickname(nickname));
+    }
+
+    public CompletableFuture<Map<InventoryRecordType, Integer>> countByType(String nickname) {
+        return read("count records for " + nickname, () -> eventRepository.countByType(nickname));
+    }
+
+    public CompletableFuture<Optional<StoredInventoryRecord>> findRecord(InventoryRecordType type, long id) {
+        return read("load " + type.key() + " record " + id, () -> fetchRecord(type, id));
+    }
+
+    public CompletableFuture<Optional<DecodedRecord>> loadRecord(InventoryRecordType type, long id) {
+        Optional<DecodedRecord> cached = decodedCache.get(type, id);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return read("decode " + type.key() + " record " + id, () -> fetchRecord(type, id).map(record -> {
+            DecodedRecord decoded = new DecodedRecord(record, decode(record.inventory()));
+            if (decoded.inventory().isPresent()) {
+                decodedCache.put(type, id, decoded);
+            }
+            return decoded;
+        }));
+    }
+
+    public CompletableFuture<Void> deleteRecord(InventoryRecordType type, long id) {
+        return taskQueue.run("delete " + type.key() + " record " + id, AsyncTaskQueue.Lane.INTERACTIVE, () -> {
+            switch (type) {
+                case DEATH -> deathRepository.delete(id);
+                case WORLD -> worldRepository.delete(id);
+                case TELEPORT -> teleportRepository.delete(id);
+                case CONNECTION, DISCONNECTION -> snapshotRepository.delete(id, type);
+            }
+            decodedCache.invalidate(type, id);
+        });
+    }
+
+    public CompletableFuture<Boolean> claimRecord(InventoryRecordType type, long id) {
+        return taskQueue.supply("claim " + type.key() + " record " + id, AsyncTaskQueue.Lane.INTERACTIVE, () -> {
+            decodedCache.invalidate(type, id);
+            return eventRepository.updateReturned(type, id, true);
+        });
+    }
+
+    public CompletableFuture<Void> releaseRecord(InventoryRecordType type, long id) {
+        return taskQueue.run("release " + type.key() + " record " + id, AsyncTaskQueue.Lane.INTERACTIVE, () -> {
+            eventRepository.updateReturned(type, id, false);
+            decodedCache.invalidate(type, id);
+        });
+    }
+
+    public int deleteOlderThan(LocalDateTime threshold, int limit) {
+        int removed = eventRepository.deleteOlderThan(threshold, limit);
+        if (removed > 0) {
+            decodedCache.invalidateAll();
+        }
+        return removed;
+    }
+
+    public CompletableFuture<List<String>> findAllNicknames() {
+        return read("load known nicknames", eventRepository::findAllNicknames);
+    }
+
+    public CompletableFuture<Optional<StoredPlayerInventory>> findLatestSnapshot(String nickname, InventoryRecordType type) {
+        return read("load latest " + type.key() + " snapshot for " + nickname, () -> snapshotRepository.findLatest(nickname, type));
+    }
+
+    public CompletableFuture<Optional<StoredPendingInventory>> findPendingInventory(String uuid, String nickname) {
+        return taskQueue.supply("load pending inventory for " + nickname, AsyncTaskQueue.Lane.INTERACTIVE, () -> {
+            Optional<StoredPendingInventory> pending = uuid == null ? Optional.empty() : pendingRepository.findByUuid(uuid);
+            return pending.isPresent() || nickname == null ? pending : pendingRepository.findByNickname(nickname);
+        });
+    }
+
+    public CompletableFuture<Void> savePendingInventory(String uuid, String nickname, byte[] inventory) {
+        return taskQueue.run("store pending inventory for " + nickname, AsyncTaskQueue.Lane.INTERACTIVE, () -> pendingRepository.save(uuid, nickname, inventory));
+    }
+
+    public CompletableFuture<Void> deletePendingInventory(String uuid) {
+        return taskQueue.run("delete pending inventory " + uuid, AsyncTaskQueue.Lane.INTERACTIVE, () -> pendingRepository.deleteByUuid(uuid));
+    }
+
+    private <T> CompletableFuture<T> read(String description, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, readExecutor).whenComplete((result, error) -> {
+            if (error != null) {
+                logger.log(Level.SEVERE, "Storage read failed: " + description, error);
+            }
+        });
+    }
+
+    private Optional<StoredInventoryRecord> fetchRecord(InventoryRecordType type, long id) {
+        return switch (type) {
+            case DEATH -> deathRepository.findById(id).map(StoredInventoryRecord.class::cast);
+            case WORLD -> worldRepository.findById(id).map(StoredInventoryRecord.class::cast);
+            case TELEPORT -> teleportRepository.findById(id).map(StoredInventoryRecord.class::cast);
+            case CONNECTION, DISCONNECTION -> snapshotRepository.findById(id, type).map(StoredInventoryRecord.class::cast);
+        };
+    }
+
+    private static Optional<SerializedInventory> decode(byte[] payload) {
+        try {
+            return Optional.of(InventorySerializer.deserializeLazily(payload));
+        } catch (IllegalStateException | IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.database.record.StoredInventoryRecord;
+import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+public final class InventorySummaryBackfill {
+
+    private static final int CHUNK_SIZE = 100;
+
+    private final DatabaseManager databaseManager;
+    private final InventoryEventRepository eventRepository;
+    private final AsyncTaskQueue taskQueue;
+    private final Logger logger;
+    private volatile boolean stopped;
+
+    public InventorySummaryBackfill(DatabaseManager databaseManager,
+                                    InventoryEventRepository eventRepository,
+                                    AsyncTaskQueue taskQueue,
+                                    Logger logger) {
+        this.databaseManager = databaseManager;
+        this.eventRepository = eventRepository;
+        this.taskQueue = taskQueue;
+        this.logger = logger;
+    }
+
+    public void start() {
+        taskQueue.execute("inventory summary backfill", () -> {
+            if (indexExists(SchemaMigrator.unsummarizedIndex())) {
+                summarize(0L, 0);
+            }
+        });
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private void summarize(long lastId, int summarized) {
+        if (stopped) {
+            return;
+        }
+
+        List<StoredInventoryRecord> chunk = eventRepository.findUnsummarized(lastId, CHUNK_SIZE);
+        if (chunk.isEmpty()) {
+            if (summarized > 0) {
+                logger.info("Summarized " + summarized + " stored inventories for the restore menus.");
+            }
+            if (hasUnsummarizedRows()) {
+                return;
+            }
+            String index = SchemaMigrator.unsummarizedIndex();
+            databaseManager.execute("Failed to drop summary index " + index, connection -> {
+                try (PreparedStatement statement = connection.prepareStatement("DROP INDEX IF EXISTS " + index)) {
+                    statement.executeUpdate();
+                }
+            });
+            return;
+        }
+
+        Map<Long, InventorySummary> summaries = new LinkedHashMap<>();
+        for (StoredInventoryRecord record : chunk) {
+            summaries.put(record.id(), summarize(record));
+        }
+        eventRepository.updateSummaries(summaries);
+
+        long nextId = chunk.get(chunk.size() - 1).id();
+        int total = summarized + chunk.size();
+        taskQueue.execute("inventory summary backfill", () -> summarize(nextId, total));
+    }
+
+    private static InventorySummary summarize(StoredInventoryRecord record) {
+        if (record.inventory() == null || record.inventory().length == 0 || InventoryPayloads.isReturnedMarker(record.inventory())) {
+            return InventorySummary.EMPTY;
+        }
+        try {
+            return InventorySummary.of(InventorySerializer.deserialize(record.inventory()));
+        } catch (IllegalArgumentException | IllegalStateException exception) {
+            return InventorySummary.EMPTY;
+        }
+    }
+
+    private boolean hasUnsummarizedRows() {
+        return databaseManager.query("Failed to look up unsummarized inventory events", connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM " + InventoryEventRepository.TABLE + " WHERE item_count IS NULL LIMIT 1");
+                 ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        });
+    }
+
+    private boolean indexExists(String name) {
+        return databaseManager.query("Failed to look up index " + name, connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+                statement.setString(1, name);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,221 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.CodecBuffers;
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
+import com.foxy.inventoryRestore.inventory.SlotDelta;
+import com.foxy.inventoryRestore.inventory.SlotTable;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class ItemStackStore {
+
+    private static final int HASH_LENGTH = 16;
+    private static final int CACHE_SIZE = 2048;
+
+    private final Map<ByteBuffer, byte[]> cache = new LinkedHashMap<>(256, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public byte[] intern(Connection connection, byte[] payload) throws SQLException {
+        PreparedInventory prepared = prepare(payload);
+        retain(connection, prepared, prepared.references());
+        return prepared.references();
+    }
+
+    public PreparedInventory prepare(byte[] payload) {
+        if (!InventoryCodec.isSlotTable(payload)) {
+            return new PreparedInventory(payload, Map.of());
+        }
+
+        SlotTable table = SlotTable.read(payload);
+        Map<ByteBuffer, byte[]> items = new HashMap<>();
+        byte[][][] references = new byte[table.sectionCount()][][];
+        for (int section = 0; section < table.sectionCount(); section++) {
+            byte[][] entries = table.section(section);
+            byte[][] hashes = new byte[entries.length][];
+            for (int slot = 0; slot < entries.length; slot++) {
+                byte[] entry = entries[slot];
+                if (SlotTable.isEmpty(entry)) {
+                    hashes[slot] = entry;
+                    continue;
+                }
+                byte[] hash = hash(entry);
+                items.put(ByteBuffer.wrap(hash), entry);
+                hashes[slot] = hash;
+            }
+            references[section] = hashes;
+        }
+        byte[] body = new SlotTable(references[SlotTable.CONTENTS], references[SlotTable.ARMOR], references[SlotTable.EXTRA]).toBytes();
+        return new PreparedInventory(InventoryCodec.encodeReferences(body), items);
+    }
+
+    public void retain(Connection connection, PreparedInventory prepared, byte[] stored) throws SQLException {
+        Map<ByteBuffer, Integer> retained = new HashMap<>();
+        collectReferences(stored, retained);
+        if (retained.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement increment = connection.prepareStatement("UPDATE item_stack SET refs = refs + ? WHERE hash = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO item_stack (hash, data, refs) VALUES (?, ?, ?)")) {
+            for (Map.Entry<ByteBuffer, Integer> entry : retained.entrySet()) {
+                byte[] hash = entry.getKey().array();
+                increment.setInt(1, entry.getValue());
+                increment.setBytes(2, hash);
+                if (increment.executeUpdate() > 0) {
+                    continue;
+                }
+                byte[] data = prepared.items().get(entry.getKey());
+                if (data == null) {
+                    throw new IllegalStateException("Missing stored item " + toHex(hash));
+                }
+                insert.setBytes(1, hash);
+                insert.setBytes(2, InventoryCodec.encode(data));
+                insert.setInt(3, entry.getValue());
+                insert.executeUpdate();
+                remember(hash, data);
+            }
+        }
+    }
+
+    public void release(Connection connection, byte[] stored) throws SQLException {
+        Map<ByteBuffer, Integer> released = new HashMap<>();
+        collectReferences(stored, released);
+        release(connection, released);
+    }
+
+    public byte[] resolve(Connection connection, byte[] payload) throws SQLException {
+        if (InventoryCodec.format(payload) != InventoryCodec.FORMAT_ITEM_REFS) {
+            return payload;
+        }
+
+        SlotTable references = SlotTable.fromBytes(InventoryCodec.decode(payload));
+        byte[][][] sections = new byte[references.sectionCount()][][];
+        try (PreparedStatement select = connection.prepareStatement("SELECT data FROM item_stack WHERE hash = ?")) {
+            for (int section = 0; section < references.sectionCount(); section++) {
+                byte[][] hashes = references.section(section);
+                byte[][] entries = new byte[hashes.length][];
+                for (int slot = 0; slot < hashes.length; slot++) {
+                    byte[] hash = hashes[slot];
+                    entries[slot] = SlotTable.isEmpty(hash) ? hash : load(select, hash);
+                }
+                sections[section] = entries;
+            }
+        }
+        SlotTable table = new SlotTable(sections[SlotTable.CONTENTS], sections[SlotTable.ARMOR], sections[SlotTable.EXTRA]);
+        return InventoryCodec.encodeSlotTable(table.toBytes(), false);
+    }
+
+    public int deleteAndRelease(Connection connection, String table, String whereClause, WriteBehindBuffer.StatementBinder binder) throws SQLException {
+        Map<ByteBuffer, Integer> released = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT inventory FROM " + table + " WHERE " + whereClause)) {
+            binder.bind(select);
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    collectReferences(resultSet.getBytes(1), released);
+                }
+            }
+        }
+
+        int deleted;
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE " + whereClause)) {
+            binder.bind(delete);
+            deleted = delete.executeUpdate();
+        }
+
+        release(connection, released);
+        return deleted;
+    }
+
+    private static void release(Connection connection, Map<ByteBuffer, Integer> released) throws SQLException {
+        if (released.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement decrement = connection.prepareStatement("UPDATE item_stack SET refs = refs - ? WHERE hash = ?");
+             PreparedStatement purge = connection.prepareStatement("DELETE FROM item_stack WHERE hash = ? AND refs <= 0")) {
+            for (Map.Entry<ByteBuffer, Integer> entry : released.entrySet()) {
+                byte[] hash = entry.getKey().array();
+                decrement.setInt(1, entry.getValue());
+                decrement.setBytes(2, hash);
+                decrement.addBatch();
+                purge.setBytes(1, hash);
+                purge.addBatch();
+            }
+            decrement.executeBatch();
+            purge.executeBatch();
+        }
+    }
+
+    private static void collectReferences(byte[] payload, Map<ByteBuffer, Integer> target) {
+        int format = InventoryCodec.format(payload);
+        if (format == InventoryCodec.FORMAT_ITEM_DELTA) {
+            for (byte[] hash : SlotDelta.entries(InventoryCodec.decode(payload))) {
+                target.merge(ByteBuffer.wrap(hash), 1, Integer::sum);
+            }
+            return;
+        }
+        if (format != InventoryCodec.FORMAT_ITEM_REFS) {
+            return;
+        }
+        SlotTable references = SlotTable.fromBytes(InventoryCodec.decode(payload));
+        for (int section = 0; section < references.sectionCount(); section++) {
+            for (byte[] hash : references.section(section)) {
+                if (!SlotTable.isEmpty(hash)) {
+                    target.merge(ByteBuffer.wrap(hash), 1, Integer::sum);
+                }
+            }
+        }
+    }
+
+    private byte[] load(PreparedStatement select, byte[] hash) throws SQLException {
+        ByteBuffer key = ByteBuffer.wrap(hash);
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        select.setBytes(1, hash);
+        try (ResultSet resultSet = select.executeQuery()) {
+            if (!resultSet.next()) {
+                throw new IllegalStateException("Missing stored item " + toHex(hash));
+            }
+            byte[] entry = InventoryCodec.decode(resultSet.getBytes(1));
+            remember(hash, entry);
+            return entry;
+        }
+    }
+
+    private void remember(byte[] hash, byte[] entry) {
+        synchronized (cache) {
+            cache.put(ByteBuffer.wrap(hash), entry);
+        }
+    }
+
+    private static byte[] hash(byte[] entry) {
+        return Arrays.copyOf(CodecBuffers.sha256().digest(entry), HASH_LENGTH);
+    }
+
+    private static String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte value : hash) {
+            builder.append(String.format("%02x", value));
+        }
+        return builder.toString();
+    }
+
+    public record PreparedInventory(byte[] references, Map<ByteBuffer, byte[]> items) {
+    }
+}
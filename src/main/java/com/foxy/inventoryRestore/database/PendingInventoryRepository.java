@@ -5,6 +5,7 @@ import com.foxy.inventoryRestore.database.record.StoredPendingInventory;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Optional;
 
 public final class PendingInventoryRepository {
@@ -15,24 +16,24 @@ public final class PendingInventoryRepository {
         this.databaseManager = databaseManager;
     }
 
-    public void save(String uuid, String nickname, String inventory) {
+    public void save(String uuid, String nickname, byte[] inventory) {
         String sql = "INSERT INTO pending_inventory (uuid, nickname, inventory) VALUES (?, ?, ?) " +
                 "ON CONFLICT(uuid) DO UPDATE SET nickname = excluded.nickname, inventory = excluded.inventory";
         databaseManager.execute("Failed to store pending inventory", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, uuid);
+                statement.setString(1, normalizeUuid(uuid));
                 statement.setString(2, nickname);
-                statement.setString(3, inventory);
+                statement.setBytes(3, inventory);
                 statement.executeUpdate();
             }
         });
     }
 
     public Optional<StoredPendingInventory> findByUuid(String uuid) {
-        String sql = "SELECT uuid, nickname, inventory FROM pending_inventory WHERE uuid = ? COLLATE NOCASE LIMIT 1";
+        String sql = "SELECT uuid, nickname, inventory FROM pending_inventory WHERE uuid = ? LIMIT 1";
         return databaseManager.query("Failed to fetch pending inventory by uuid", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, uuid);
+                statement.setString(1, normalizeUuid(uuid));
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return Optional.empty();
@@ -59,19 +60,23 @@ public final class PendingInventoryRepository {
     }
 
     public void deleteByUuid(String uuid) {
-        String sql = "DELETE FROM pending_inventory WHERE uuid = ? COLLATE NOCASE";
+        String sql = "DELETE FROM pending_inventory WHERE uuid = ?";
         databaseManager.execute("Failed to delete pending inventory", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, uuid);
+                statement.setString(1, normalizeUuid(uuid));
                 statement.executeUpdate();
             }
         });
     }
 
+    private String normalizeUuid(String uuid) {
+        return uuid == null ? null : uuid.toLowerCase(Locale.ENGLISH);
+    }
+
     private StoredPendingInventory mapRecord(ResultSet resultSet) throws SQLException {
         String uuid = resultSet.getString("uuid");
         String nickname = resultSet.getString("nickname");
-        String inventory = resultSet.getString("inventory");
+        byte[] inventory = resultSet.getBytes("inventory");
         return new StoredPendingInventory(uuid, nickname, inventory);
     }
 }
@@ -1,13 +1,14 @@
 package com.foxy.inventoryRestore.database;
 
 import com.foxy.inventoryRestore.database.record.StoredPlayerInventory;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.util.DateFormats;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -15,76 +16,87 @@ import java.util.Optional;
 
 public final class PlayerSnapshotRepository {
 
+    private static final String HEADER_COLUMNS = "id, event_date, uuid, nickname, location, world, returned, item_count, slot_count, notable_materials";
+    private static final String COLUMNS = HEADER_COLUMNS + ", inventory, delta_base";
     private static final EnumSet<InventoryRecordType> SUPPORTED_TYPES = EnumSet.of(
             InventoryRecordType.CONNECTION,
             InventoryRecordType.DISCONNECTION
     );
 
     private final DatabaseManager databaseManager;
+    private final WriteBehindBuffer writeBuffer;
+    private final DeltaSnapshotStore deltaStore;
 
-    public PlayerSnapshotRepository(DatabaseManager databaseManager) {
+    public PlayerSnapshotRepository(DatabaseManager databaseManager, WriteBehindBuffer writeBuffer, DeltaSnapshotStore deltaStore) {
         this.databaseManager = databaseManager;
+        this.writeBuffer = writeBuffer;
+        this.deltaStore = deltaStore;
     }
 
     public void save(InventoryRecordType type,
                      String timestamp,
                      String uuid,
                      String nickname,
-                     String inventory,
+                     SnapshotPayload inventory,
                      String location,
-                     String world) {
+                     String world,
+                     InventorySummary summary) {
         ensureSupported(type);
 
-        String sql = "INSERT INTO " + type.tableName() + " (event_date, uuid, nickname, inventory, location, world, returned) VALUES (?, ?, ?, ?, ?, ?, 0)";
-        databaseManager.execute("Failed to store player snapshot for table " + type.tableName(), connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, timestamp);
-                statement.setString(2, uuid);
-                statement.setString(3, nickname);
-                statement.setString(4, inventory);
-                statement.setString(5, location);
-                statement.setString(6, world);
-                statement.executeUpdate();
-            }
+        String sql = "INSERT INTO " + InventoryEventRepository.TABLE + " (type, event_date, uuid, nickname, inventory, location, world, delta_base, delta_depth, event_time, item_count, slot_count, notable_materials, fingerprint, returned) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        long eventTime = DateFormats.recordDateToEpochMillis(timestamp);
+        String chainKey = DeltaSnapshotStore.chainKey(type, uuid);
+        writeBuffer.submit(type.key() + " snapshot for " + nickname, sql, chainKey, statement -> {
+            statement.setString(1, type.key());
+            statement.setString(2, timestamp);
+            statement.setString(3, uuid);
+            statement.setString(4, nickname);
+            deltaStore.encode(statement.getConnection(), type, uuid, inventory).bind(statement, 5, 8, 9);
+            statement.setString(6, location);
+            statement.setString(7, world);
+            statement.setLong(10, eventTime);
+            InventoryPayloads.bindSummary(statement, 11, summary);
+            statement.setLong(14, inventory.fingerprint());
         });
     }
 
     public Optional<StoredPlayerInventory> findLatest(String nickname, InventoryRecordType type) {
         ensureSupported(type);
 
-        String sql = "SELECT id, event_date, uuid, nickname, inventory, location, world, returned FROM " + type.tableName()
-                + " WHERE nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT 1";
-        return databaseManager.query("Failed to fetch latest snapshot for table " + type.tableName(), connection -> {
+        String sql = "SELECT " + COLUMNS + " FROM " + InventoryEventRepository.TABLE
+                + " WHERE type = ? AND nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT 1";
+        return databaseManager.query("Failed to fetch latest snapshot of type " + type.key(), connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
+                statement.setString(1, type.key());
+                statement.setString(2, nickname);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return Optional.empty();
                     }
-                    return Optional.of(mapRecord(resultSet, type));
+                    return Optional.of(mapRecord(connection, resultSet, type, true));
                 }
             }
         });
     }
 
-    public List<StoredPlayerInventory> findByNickname(String nickname, InventoryRecordType type, int limit, int offset) {
+    public List<StoredPlayerInventory> findByNickname(String nickname, InventoryRecordType type, int limit, long beforeId) {
         ensureSupported(type);
 
-        String sql = "SELECT id, event_date, uuid, nickname, inventory, location, world, returned FROM " + type.tableName()
-                + " WHERE nickname = ? COLLATE NOCASE ORDER BY id DESC LIMIT ? OFFSET ?";
+        String sql = "SELECT " + HEADER_COLUMNS + " FROM " + InventoryEventRepository.TABLE
+                + " WHERE type = ? AND nickname = ? COLLATE NOCASE AND id < ? ORDER BY id DESC LIMIT ?";
 
         int safeLimit = Math.max(0, limit);
-        int safeOffset = Math.max(0, offset);
 
-        return databaseManager.query("Failed to fetch snapshots for table " + type.tableName(), connection -> {
+        return databaseManager.query("Failed to fetch snapshots of type " + type.key(), connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
-                statement.setInt(2, safeLimit);
-                statement.setInt(3, safeOffset);
+                statement.setString(1, type.key());
+                statement.setString(2, nickname);
+                statement.setLong(3, beforeId);
+                statement.setInt(4, safeLimit);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     List<StoredPlayerInventory> records = new ArrayList<>();
                     while (resultSet.next()) {
-                        records.add(mapRecord(resultSet, type));
+                        records.add(mapRecord(connection, resultSet, type, false));
                     }
                     return records;
                 }
@@ -95,22 +107,21 @@ public final class PlayerSnapshotRepository {
     public void delete(long id, InventoryRecordType type) {
         ensureSupported(type);
 
-        String sql = "DELETE FROM " + type.tableName() + " WHERE id = ?";
-        databaseManager.execute("Failed to delete snapshot from table " + type.tableName(), connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
-                statement.executeUpdate();
-            }
-        });
+        databaseManager.executeInTransaction("Failed to delete snapshot of type " + type.key(), connection ->
+                deltaStore.deleteAndRelease(connection, "type = ? AND id = ?", statement -> {
+                    statement.setString(1, type.key());
+                    statement.setLong(2, id);
+                }));
     }
 
     public void markInventoryReturned(long id, InventoryRecordType type) {
         ensureSupported(type);
 
-        String sql = "UPDATE " + type.tableName() + " SET returned = 1 WHERE id = ?";
-        databaseManager.execute("Failed to mark snapshot as returned in table " + type.tableName(), connection -> {
+        String sql = "UPDATE " + InventoryEventRepository.TABLE + " SET returned = 1 WHERE type = ? AND id = ?";
+        databaseManager.execute("Failed to mark " + type.key() + " snapshot as returned", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
+                statement.setString(1, type.key());
+                statement.setLong(2, id);
                 statement.executeUpdate();
             }
         });
@@ -119,29 +130,17 @@ public final class PlayerSnapshotRepository {
     public Optional<StoredPlayerInventory> findById(long id, InventoryRecordType type) {
         ensureSupported(type);
 
-        String sql = "SELECT id, event_date, uuid, nickname, inventory, location, world, returned FROM " + type.tableName() + " WHERE id = ?";
-        return databaseManager.query("Failed to fetch snapshot by id from table " + type.tableName(), connection -> {
+        String sql = "SELECT " + COLUMNS + " FROM " + InventoryEventRepository.TABLE
+                + " WHERE type = ? AND id = ?";
+        return databaseManager.query("Failed to fetch " + type.key() + " snapshot by id", connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setLong(1, id);
+                statement.setString(1, type.key());
+                statement.setLong(2, id);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return Optional.empty();
                     }
-                    return Optional.of(mapRecord(resultSet, type));
-                }
-            }
-        });
-    }
-
-    public boolean hasRecords(String nickname, InventoryRecordType type) {
-        ensureSupported(type);
-
-        String sql = "SELECT 1 FROM " + type.tableName() + " WHERE nickname = ? COLLATE NOCASE LIMIT 1";
-        return databaseManager.query("Failed to determine if snapshots exist for table " + type.tableName(), connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    return resultSet.next();
+                    return Optional.of(mapRecord(connection, resultSet, type, true));
                 }
             }
         });
@@ -150,11 +149,12 @@ public final class PlayerSnapshotRepository {
     public int countByNickname(String nickname, InventoryRecordType type) {
         ensureSupported(type);
 
-        String sql = "SELECT COUNT(*) FROM " + type.tableName() + " WHERE nickname = ? COLLATE NOCASE";
+        String sql = "SELECT records FROM " + InventoryEventRepository.COUNTER_TABLE + " WHERE type = ? AND nickname = ?";
 
-        return databaseManager.query("Failed to count snapshots for table " + type.tableName(), connection -> {
+        return databaseManager.query("Failed to count snapshots of type " + type.key(), connection -> {
             try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, nickname);
+                statement.setString(1, type.key());
+                statement.setString(2, nickname);
                 try (ResultSet resultSet = statement.executeQuery()) {
                     if (!resultSet.next()) {
                         return 0;
@@ -165,62 +165,16 @@ public final class PlayerSnapshotRepository {
         });
     }
 
-    public List<String> findAllNicknames(InventoryRecordType type) {
-        ensureSupported(type);
-
-        String sql = "SELECT DISTINCT nickname FROM " + type.tableName()
-                + " WHERE nickname IS NOT NULL AND TRIM(nickname) <> '' ORDER BY nickname COLLATE NOCASE";
-        return databaseManager.query("Failed to fetch player nicknames from table " + type.tableName(), connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql);
-                 ResultSet resultSet = statement.executeQuery()) {
-                List<String> names = new ArrayList<>();
-                while (resultSet.next()) {
-                    names.add(resultSet.getString("nickname"));
-                }
-                return names;
-            }
-        });
-    }
-
-    public int deleteOlderThan(LocalDateTime threshold, InventoryRecordType type) {
-        ensureSupported(type);
-
-        String whereClause = buildCleanupClause("event_date");
-        String sql = "DELETE FROM " + type.tableName() + " WHERE " + whereClause;
-        String thresholdValue = threshold.format(DateFormats.SQLITE_DATE_TIME);
-
-        return databaseManager.query("Failed to delete expired snapshots from table " + type.tableName(), connection -> {
-            try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, thresholdValue);
-                return statement.executeUpdate();
-            }
-        });
-    }
-
-    private static String buildCleanupClause(String column) {
-        String normalized = normalizeDate(column);
-        return column + " IS NULL OR TRIM(" + column + ") = '' OR "
-                + "strftime('%s', " + normalized + ") IS NULL OR "
-                + "strftime('%s', " + normalized + ") < strftime('%s', ?)";
-    }
-
-    private static String normalizeDate(String column) {
-        return "'20' || substr(" + column + ", 7, 2) || '-' || substr(" + column + ", 4, 2) || '-' || substr(" + column + ", 1, 2) || ' ' || substr(" + column + ", 10)";
-    }
-
-    private StoredPlayerInventory mapRecord(ResultSet resultSet, InventoryRecordType type) throws SQLException {
+    StoredPlayerInventory mapRecord(Connection connection, ResultSet resultSet, InventoryRecordType type, boolean withPayload) throws SQLException {
         long id = resultSet.getLong("id");
         String eventDate = resultSet.getString("event_date");
         String uuid = resultSet.getString("uuid");
         String nickname = resultSet.getString("nickname");
-        String inventory = resultSet.getString("inventory");
+        byte[] inventory = withPayload ? deltaStore.resolve(connection, id, resultSet.getLong("delta_base"), resultSet.getBytes("inventory")) : null;
         String location = resultSet.getString("location");
         String world = resultSet.getString("world");
-        boolean returned = resultSet.getInt("returned") == 1 || "returned".equalsIgnoreCase(inventory);
-        if (returned && "returned".equalsIgnoreCase(inventory)) {
-            inventory = "returned";
-        }
-        return new StoredPlayerInventory(id, type, eventDate, uuid, nickname, inventory, returned, location, world);
+        boolean returned = resultSet.getInt("returned") == 1 || InventoryPayloads.isReturnedMarker(inventory);
+        return new StoredPlayerInventory(id, type, eventDate, uuid, nickname, inventory, returned, location, world, InventoryPayloads.readSummary(resultSet));
     }
 
     private void ensureSupported(InventoryRecordType type) {
@@ -0,0 +1,189 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+public final class RetentionPurge {
+
+    private static final long TICKS_PER_MINUTE = 20L * 60L;
+    private static final long INITIAL_DELAY_TICKS = 20L * 30L;
+    private static final int PROGRESS_LOG_CHUNKS = 20;
+
+    private final Plugin plugin;
+    private final AsyncTaskQueue taskQueue;
+    private final Logger logger;
+    private final List<Target> targets;
+    private final Object lock = new Object();
+
+    private BukkitTask timer;
+    private int generation;
+    private int days;
+    private int chunkSize;
+    private boolean running;
+    private String currentTable;
+    private long runStartedNanos;
+    private long runRemoved;
+    private int runChunks;
+    private Progress lastRun;
+
+    public RetentionPurge(Plugin plugin, AsyncTaskQueue taskQueue, Logger logger, List<Target> targets) {
+        this.plugin = plugin;
+        this.taskQueue = taskQueue;
+        this.logger = logger;
+        this.targets = List.copyOf(targets);
+    }
+
+    public void start(int days, long intervalMinutes, int chunkSize) {
+        synchronized (lock) {
+            cancelLocked();
+            this.days = days;
+            this.chunkSize = Math.max(1, chunkSize);
+            if (days <= 0) {
+                return;
+            }
+            long period = Math.max(1L, intervalMinutes) * TICKS_PER_MINUTE;
+            timer = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::runNow, INITIAL_DELAY_TICKS, period);
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            cancelLocked();
+        }
+    }
+
+    public void runNow() {
+        int runGeneration;
+        LocalDateTime threshold;
+        synchronized (lock) {
+            if (running || days <= 0) {
+                return;
+            }
+            running = true;
+            runGeneration = generation;
+            threshold = LocalDateTime.now().minusDays(days);
+            currentTable = null;
+            runStartedNanos = System.nanoTime();
+            runRemoved = 0L;
+            runChunks = 0;
+        }
+        schedule(runGeneration, () -> purge(runGeneration, threshold, 0));
+    }
+
+    public Progress progress() {
+        synchronized (lock) {
+            if (running) {
+                return new Progress(true, currentTable, runRemoved, elapsedMillis(), rate(runRemoved, elapsedMillis()));
+            }
+            return lastRun;
+        }
+    }
+
+    private void purge(int runGeneration, LocalDateTime threshold, int targetIndex) {
+        if (targetIndex >= targets.size()) {
+            finish(runGeneration);
+            return;
+        }
+
+        Target target = targets.get(targetIndex);
+        int limit;
+        synchronized (lock) {
+            if (runGeneration != generation) {
+                running = false;
+                return;
+            }
+            currentTable = target.table();
+            limit = chunkSize;
+        }
+
+        int removed;
+        try {
+            removed = target.deleter().deleteOlderThan(threshold, limit);
+        } catch (RuntimeException exception) {
+            synchronized (lock) {
+                running = false;
+            }
+            throw exception;
+        }
+
+        boolean logProgress;
+        synchronized (lock) {
+            runRemoved += removed;
+            runChunks++;
+            logProgress = runChunks % PROGRESS_LOG_CHUNKS == 0;
+        }
+        if (logProgress) {
+            Progress progress = progress();
+            logger.info("Retention purge in progress: " + progress.removed() + " expired records removed so far ("
+                    + progress.table() + ", " + formatRate(progress.rowsPerSecond()) + " rows/s).");
+        }
+
+        int next = removed >= limit ? targetIndex : targetIndex + 1;
+        schedule(runGeneration, () -> purge(runGeneration, threshold, next));
+    }
+
+    private void finish(int runGeneration) {
+        Progress summary;
+        synchronized (lock) {
+            running = false;
+            if (runGeneration != generation) {
+                return;
+            }
+            long elapsed = elapsedMillis();
+            summary = new Progress(false, null, runRemoved, elapsed, rate(runRemoved, elapsed));
+            lastRun = summary;
+        }
+        if (summary.removed() > 0) {
+            logger.info("Retention purge removed " + summary.removed() + " expired inventory records in "
+                    + summary.elapsedMillis() + " ms (" + formatRate(summary.rowsPerSecond()) + " rows/s).");
+        }
+    }
+
+    private void schedule(int runGeneration, Runnable step) {
+        synchronized (lock) {
+            if (runGeneration != generation) {
+                running = false;
+                return;
+            }
+        }
+        taskQueue.execute("retention purge", step);
+    }
+
+    private void cancelLocked() {
+        generation++;
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - runStartedNanos) / 1_000_000L;
+    }
+
+    private static double rate(long removed, long elapsedMillis) {
+        return elapsedMillis <= 0L ? removed : removed * 1000.0D / elapsedMillis;
+    }
+
+    private static String formatRate(double rate) {
+        return String.format(Locale.ENGLISH, "%.0f", rate);
+    }
+
+    @FunctionalInterface
+    public interface ChunkDeleter {
+        int deleteOlderThan(LocalDateTime threshold, int limit);
+    }
+
+    public record Target(String table, ChunkDeleter deleter) {
+    }
+
+    public record Progress(boolean running, String table, long removed, long elapsedMillis, double rowsPerSecond) {
+    }
+}
@@ -0,0 +1,401 @@
+package com.foxy.inventoryRestore.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.logging.Logger;
+
+final class SchemaMigrator {
+
+    private static final List<String> EVENT_TABLES = List.of("death", "disconnection", "connection", "world", "teleport");
+    private static final List<String> DELTA_TABLES = List.of("disconnection", "connection", "world", "teleport");
+    private static final Map<String, List<String>> EVENT_ATTRIBUTES = Map.of(
+            "death", List.of("death_type", "location", "world"),
+            "disconnection", List.of("location", "world"),
+            "connection", List.of("location", "world"),
+            "world", List.of("from_world", "to_world"),
+            "teleport", List.of("from_location", "to_location")
+    );
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create inventory tables", SchemaMigrator::createTables),
+            new Migration(2, "index player lookups", SchemaMigrator::createIndexes),
+            new Migration(3, "track text inventories for binary conversion", SchemaMigrator::trackTextInventories),
+            new Migration(4, "store compression dictionaries", SchemaMigrator::createDictionaryTable),
+            new Migration(5, "deduplicate item stacks", SchemaMigrator::createItemStackTable),
+            new Migration(6, "chain snapshot deltas", SchemaMigrator::addDeltaColumns),
+            new Migration(7, "index event times", SchemaMigrator::addEventTimes),
+            new Migration(8, "merge event tables into a unified event log", SchemaMigrator::mergeEventTables),
+            new Migration(9, "maintain per-player record counters", SchemaMigrator::createRecordCounters),
+            new Migration(10, "store inventory summaries", SchemaMigrator::addSummaryColumns),
+            new Migration(11, "fingerprint snapshots", SchemaMigrator::addFingerprintColumn)
+    );
+
+    private final Logger logger;
+
+    SchemaMigrator(Logger logger) {
+        this.logger = logger;
+    }
+
+    void migrate(Connection connection) throws SQLException {
+        int current = readVersion(connection);
+        int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+        if (current > latest) {
+            logger.warning("Database schema version " + current + " is newer than this plugin supports (" + latest + ").");
+            return;
+        }
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            apply(connection, migration);
+            logger.info("Applied database migration " + migration.version() + " (" + migration.description() + ").");
+        }
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migration.action().accept(connection);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("PRAGMA user_version = " + migration.version());
+            }
+            connection.commit();
+        } catch (SQLException | RuntimeException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static int readVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("PRAGMA user_version")) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private static void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS death (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "death_type TEXT NOT NULL," +
+                    "death_date TEXT NOT NULL," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL," +
+                    "location TEXT," +
+                    "world TEXT," +
+                    "returned INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS disconnection (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "event_date TEXT NOT NULL," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL," +
+                    "location TEXT," +
+                    "world TEXT," +
+                    "returned INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS connection (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "event_date TEXT NOT NULL," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL," +
+                    "location TEXT," +
+                    "world TEXT," +
+                    "returned INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS world (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "from_world TEXT NOT NULL," +
+                    "to_world TEXT NOT NULL," +
+                    "event_date TEXT NOT NULL," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL," +
+                    "returned INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS teleport (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "from_location TEXT NOT NULL," +
+                    "to_location TEXT NOT NULL," +
+                    "event_date TEXT NOT NULL," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL," +
+                    "returned INTEGER NOT NULL DEFAULT 0" +
+                    ")");
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS pending_inventory (" +
+                    "uuid TEXT PRIMARY KEY," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory TEXT NOT NULL" +
+                    ")");
+        }
+
+        ensureColumn(connection, "death", "returned", "INTEGER NOT NULL DEFAULT 0");
+        ensureColumn(connection, "death", "location", "TEXT");
+        ensureColumn(connection, "death", "world", "TEXT");
+        ensureColumn(connection, "connection", "returned", "INTEGER NOT NULL DEFAULT 0");
+        ensureColumn(connection, "disconnection", "returned", "INTEGER NOT NULL DEFAULT 0");
+        ensureColumn(connection, "connection", "location", "TEXT");
+        ensureColumn(connection, "connection", "world", "TEXT");
+        ensureColumn(connection, "disconnection", "location", "TEXT");
+        ensureColumn(connection, "disconnection", "world", "TEXT");
+        ensureColumn(connection, "teleport", "from_location", "TEXT");
+        ensureColumn(connection, "teleport", "to_location", "TEXT");
+        ensureColumn(connection, "teleport", "event_date", "TEXT");
+        ensureColumn(connection, "teleport", "uuid", "TEXT");
+        ensureColumn(connection, "teleport", "nickname", "TEXT");
+        ensureColumn(connection, "teleport", "inventory", "TEXT");
+        ensureColumn(connection, "teleport", "returned", "INTEGER NOT NULL DEFAULT 0");
+        ensureColumn(connection, "world", "from_world", "TEXT");
+        ensureColumn(connection, "world", "to_world", "TEXT");
+        ensureColumn(connection, "world", "event_date", "TEXT");
+        ensureColumn(connection, "world", "uuid", "TEXT");
+        ensureColumn(connection, "world", "nickname", "TEXT");
+        ensureColumn(connection, "world", "inventory", "TEXT");
+        ensureColumn(connection, "world", "returned", "INTEGER NOT NULL DEFAULT 0");
+        ensureColumn(connection, "connection", "event_date", "TEXT");
+        ensureColumn(connection, "connection", "uuid", "TEXT");
+        ensureColumn(connection, "connection", "nickname", "TEXT");
+        ensureColumn(connection, "connection", "inventory", "TEXT");
+        ensureColumn(connection, "disconnection", "event_date", "TEXT");
+        ensureColumn(connection, "disconnection", "uuid", "TEXT");
+        ensureColumn(connection, "disconnection", "nickname", "TEXT");
+        ensureColumn(connection, "disconnection", "inventory", "TEXT");
+        synchronizeReturnedFlag(connection);
+    }
+
+    private static void createIndexes(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : EVENT_TABLES) {
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_nickname ON " + table
+                        + " (nickname COLLATE NOCASE, id DESC)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_uuid ON " + table
+                        + " (uuid, id)");
+            }
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_pending_inventory_nickname ON pending_inventory"
+                    + " (nickname COLLATE NOCASE)");
+        }
+    }
+
+    private static void trackTextInventories(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : EVENT_TABLES) {
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + textInventoryIndex(table) + " ON " + table
+                        + " (id) WHERE typeof(inventory) = 'text'");
+            }
+        }
+    }
+
+    private static void createDictionaryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS codec_dictionary (" +
+                    "id INTEGER PRIMARY KEY," +
+                    "dictionary BLOB NOT NULL," +
+                    "sample_count INTEGER NOT NULL," +
+                    "created_at TEXT NOT NULL" +
+                    ")");
+        }
+    }
+
+    private static void createItemStackTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS item_stack (" +
+                    "hash BLOB PRIMARY KEY," +
+                    "data BLOB NOT NULL," +
+                    "refs INTEGER NOT NULL" +
+                    ")");
+        }
+    }
+
+    private static void addDeltaColumns(Connection connection) throws SQLException {
+        for (String table : DELTA_TABLES) {
+            ensureColumn(connection, table, "delta_base", "INTEGER");
+            ensureColumn(connection, table, "delta_depth", "INTEGER NOT NULL DEFAULT 0");
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : DELTA_TABLES) {
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_delta_base ON " + table
+                        + " (delta_base) WHERE delta_base IS NOT NULL");
+            }
+        }
+    }
+
+    private static void addEventTimes(Connection connection) throws SQLException {
+        for (String table : EVENT_TABLES) {
+            ensureColumn(connection, table, "event_time", "INTEGER NOT NULL DEFAULT 0");
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : EVENT_TABLES) {
+                String column = "death".equals(table) ? "death_date" : "event_date";
+                statement.executeUpdate("UPDATE " + table + " SET event_time = COALESCE("
+                        + "CAST(strftime('%s', " + normalizeRecordDate(column) + ", 'utc') AS INTEGER) * 1000, 0)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_event_time ON " + table + " (event_time)");
+            }
+        }
+    }
+
+    private static void mergeEventTables(Connection connection) throws SQLException {
+        String table = InventoryEventRepository.TABLE;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "type TEXT NOT NULL," +
+                    "event_date TEXT NOT NULL," +
+                    "event_time INTEGER NOT NULL DEFAULT 0," +
+                    "uuid TEXT NOT NULL," +
+                    "nickname TEXT NOT NULL," +
+                    "inventory BLOB NOT NULL," +
+                    "returned INTEGER NOT NULL DEFAULT 0," +
+                    "delta_base INTEGER," +
+                    "delta_depth INTEGER NOT NULL DEFAULT 0," +
+                    "death_type TEXT," +
+                    "location TEXT," +
+                    "world TEXT," +
+                    "from_world TEXT," +
+                    "to_world TEXT," +
+                    "from_location TEXT," +
+                    "to_location TEXT" +
+                    ")");
+
+            statement.executeUpdate("CREATE TEMP TABLE event_id_map (" +
+                    "type TEXT NOT NULL," +
+                    "legacy_id INTEGER NOT NULL," +
+                    "new_id INTEGER NOT NULL," +
+                    "PRIMARY KEY (type, legacy_id)" +
+                    ")");
+            StringJoiner legacyRows = new StringJoiner(" UNION ALL ");
+            for (String legacy : EVENT_TABLES) {
+                legacyRows.add("SELECT '" + legacy + "' AS type, id AS legacy_id, event_time FROM " + legacy);
+            }
+            statement.executeUpdate("INSERT INTO event_id_map (type, legacy_id, new_id) SELECT type, legacy_id, "
+                    + "ROW_NUMBER() OVER (ORDER BY event_time, legacy_id, type) FROM (" + legacyRows + ")");
+
+            for (String legacy : EVENT_TABLES) {
+                List<String> attributes = EVENT_ATTRIBUTES.get(legacy);
+                String dateColumn = "death".equals(legacy) ? "death_date" : "event_date";
+                boolean chained = DELTA_TABLES.contains(legacy);
+                String deltaBase = chained
+                        ? "(SELECT base.new_id FROM event_id_map base WHERE base.type = '" + legacy + "' AND base.legacy_id = source.delta_base)"
+                        : "NULL";
+                String deltaDepth = chained ? "source.delta_depth" : "0";
+                StringJoiner sourceAttributes = new StringJoiner(", ");
+                attributes.forEach(attribute -> sourceAttributes.add("source." + attribute));
+
+                statement.executeUpdate("INSERT INTO " + table + " (id, type, event_date, event_time, uuid, nickname, inventory, "
+                        + "returned, delta_base, delta_depth, " + String.join(", ", attributes) + ") "
+                        + "SELECT map.new_id, '" + legacy + "', COALESCE(source." + dateColumn + ", ''), source.event_time, "
+                        + "COALESCE(source.uuid, ''), COALESCE(source.nickname, ''), COALESCE(source.inventory, ''), "
+                        + "source.returned, " + deltaBase + ", " + deltaDepth + ", " + sourceAttributes + " "
+                        + "FROM " + legacy + " source JOIN event_id_map map ON map.type = '" + legacy + "' AND map.legacy_id = source.id");
+                statement.executeUpdate("DROP TABLE " + legacy);
+            }
+            statement.executeUpdate("DROP TABLE event_id_map");
+
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_nickname ON " + table
+                    + " (nickname COLLATE NOCASE, id DESC)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_type_nickname ON " + table
+                    + " (type, nickname COLLATE NOCASE, id DESC)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_uuid ON " + table + " (type, uuid, id)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_event_time ON " + table + " (event_time)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_" + table + "_delta_base ON " + table
+                    + " (delta_base) WHERE delta_base IS NOT NULL");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + textInventoryIndex(table) + " ON " + table
+                    + " (id) WHERE typeof(inventory) = 'text'");
+        }
+    }
+
+    private static void createRecordCounters(Connection connection) throws SQLException {
+        String table = InventoryEventRepository.TABLE;
+        String counters = InventoryEventRepository.COUNTER_TABLE;
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + counters + " (" +
+                    "nickname TEXT NOT NULL COLLATE NOCASE," +
+                    "type TEXT NOT NULL," +
+                    "records INTEGER NOT NULL," +
+                    "PRIMARY KEY (nickname, type)" +
+                    ") WITHOUT ROWID");
+            statement.executeUpdate("DELETE FROM " + counters);
+            statement.executeUpdate("INSERT INTO " + counters + " (nickname, type, records) "
+                    + "SELECT nickname, type, COUNT(*) FROM " + table + " GROUP BY nickname COLLATE NOCASE, type");
+
+            statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_count_insert AFTER INSERT ON " + table + " BEGIN "
+                    + "INSERT INTO " + counters + " (nickname, type, records) VALUES (NEW.nickname, NEW.type, 1) "
+                    + "ON CONFLICT (nickname, type) DO UPDATE SET records = records + 1; "
+                    + "END");
+            statement.executeUpdate("CREATE TRIGGER IF NOT EXISTS trg_" + table + "_count_delete AFTER DELETE ON " + table + " BEGIN "
+                    + "UPDATE " + counters + " SET records = records - 1 WHERE nickname = OLD.nickname AND type = OLD.type; "
+                    + "DELETE FROM " + counters + " WHERE nickname = OLD.nickname AND type = OLD.type AND records <= 0; "
+                    + "END");
+        }
+    }
+
+    private static void addSummaryColumns(Connection connection) throws SQLException {
+        String table = InventoryEventRepository.TABLE;
+        ensureColumn(connection, table, "item_count", "INTEGER");
+        ensureColumn(connection, table, "slot_count", "INTEGER");
+        ensureColumn(connection, table, "notable_materials", "TEXT");
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + unsummarizedIndex() + " ON " + table + " (id) WHERE item_count IS NULL");
+        }
+    }
+
+    private static void addFingerprintColumn(Connection connection) throws SQLException {
+        ensureColumn(connection, InventoryEventRepository.TABLE, "fingerprint", "INTEGER");
+    }
+
+    private static String normalizeRecordDate(String column) {
+        return "'20' || substr(" + column + ", 7, 2) || '-' || substr(" + column + ", 4, 2) || '-' || substr(" + column + ", 1, 2)"
+                + " || ' ' || substr(" + column + ", 10)";
+    }
+
+    static String textInventoryIndex(String table) {
+        return "idx_" + table + "_text_inventory";
+    }
+
+    static String unsummarizedIndex() {
+        return "idx_" + InventoryEventRepository.TABLE + "_unsummarized";
+    }
+
+    private static void ensureColumn(Connection connection, String table, String column, String definition) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getColumns(null, null, table, column)) {
+            if (resultSet.next()) {
+                return;
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    private static void synchronizeReturnedFlag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE death SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+            statement.executeUpdate("UPDATE connection SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+            statement.executeUpdate("UPDATE disconnection SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+            statement.executeUpdate("UPDATE world SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+            statement.executeUpdate("UPDATE teleport SET returned = 1 WHERE LOWER(inventory) = 'returned'");
+        }
+    }
+
+    private record Migration(int version, String description, DatabaseManager.SqlConsumer action) {
+    }
+}
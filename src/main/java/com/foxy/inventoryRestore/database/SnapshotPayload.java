@@ -0,0 +1,41 @@
+package com.foxy.inventoryRestore.database;
+
+import java.util.function.Supplier;
+
+public final class SnapshotPayload {
+
+    private final long fingerprint;
+    private final boolean unchanged;
+    private final Supplier<byte[]> serializer;
+    private byte[] serialized;
+
+    private SnapshotPayload(long fingerprint, boolean unchanged, byte[] serialized, Supplier<byte[]> serializer) {
+        this.fingerprint = fingerprint;
+        this.unchanged = unchanged;
+        this.serialized = serialized;
+        this.serializer = serializer;
+    }
+
+    public static SnapshotPayload of(long fingerprint, byte[] serialized) {
+        return new SnapshotPayload(fingerprint, false, serialized, null);
+    }
+
+    public static SnapshotPayload unchanged(long fingerprint, Supplier<byte[]> serializer) {
+        return new SnapshotPayload(fingerprint, true, null, serializer);
+    }
+
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    public boolean unchanged() {
+        return unchanged;
+    }
+
+    public byte[] serialized() {
+        if (serialized == null) {
+            serialized = serializer.get();
+        }
+        return serialized;
+    }
+}
@@ -0,0 +1,68 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.CodecBenchmark;
+import com.foxy.inventoryRestore.inventory.InventoryCodec;
+import com.foxy.inventoryRestore.util.AsyncTaskQueue;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public final class StorageDiagnostics {
+
+    private final Plugin plugin;
+    private final AsyncTaskQueue taskQueue;
+    private final WriteBehindBuffer writeBuffer;
+    private final InventoryCodecService codecService;
+    private final RetentionPurge retentionPurge;
+    private final DecodedInventoryCache decodedCache;
+
+    public StorageDiagnostics(Plugin plugin,
+                              AsyncTaskQueue taskQueue,
+                              WriteBehindBuffer writeBuffer,
+                              InventoryCodecService codecService,
+                              RetentionPurge retentionPurge,
+                              DecodedInventoryCache decodedCache) {
+        this.plugin = plugin;
+        this.taskQueue = taskQueue;
+        this.writeBuffer = writeBuffer;
+        this.codecService = codecService;
+        this.retentionPurge = retentionPurge;
+        this.decodedCache = decodedCache;
+    }
+
+    public WriteBehindBuffer.Statistics writeStatistics() {
+        return writeBuffer.statistics();
+    }
+
+    public AsyncTaskQueue.Statistics queueStatistics() {
+        return taskQueue.statistics();
+    }
+
+    public int activeDictionary() {
+        return InventoryCodec.activeDictionary();
+    }
+
+    public DecodedInventoryCache.Statistics cacheStatistics() {
+        return decodedCache.statistics();
+    }
+
+    public RetentionPurge.Progress retentionProgress() {
+        return retentionPurge.progress();
+    }
+
+    public void codecReport(Consumer<List<InventoryCodecService.TableReport>> callback) {
+        taskQueue.execute("compression report", () -> {
+            List<InventoryCodecService.TableReport> reports = codecService.report();
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(reports));
+        });
+    }
+
+    public void codecBenchmark(Consumer<CodecBenchmark.Report> callback) {
+        taskQueue.execute("codec benchmark", () -> {
+            CodecBenchmark.Report report = codecService.benchmark();
+            Bukkit.getScheduler().runTask(plugin, () -> callback.accept(report));
+        });
+    }
+}
@@ -0,0 +1,217 @@
+package com.foxy.inventoryRestore.database;
+
+import com.foxy.inventoryRestore.inventory.CodecBuffers;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class WriteBehindBuffer {
+
+    private final DatabaseManager databaseManager;
+    private final Logger logger;
+    private final int maxBatchSize;
+    private final long maxLingerMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+
+    private List<PendingWrite> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private long flushedBatches;
+    private long flushedRows;
+    private int largestBatch;
+    private boolean closed;
+
+    public WriteBehindBuffer(DatabaseManager databaseManager, Logger logger, int maxBatchSize, long maxLingerMillis) {
+        this.databaseManager = Objects.requireNonNull(databaseManager, "databaseManager");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxLingerMillis = Math.max(0L, maxLingerMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = CodecBuffers.newThread(runnable, "InventoryRestore-WriteBehind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void submit(String description, String sql, StatementBinder binder) {
+        submit(description, sql, null, binder);
+    }
+
+    public void submit(String description, String sql, String chainKey, StatementBinder binder) {
+        Objects.requireNonNull(sql, "sql");
+        Objects.requireNonNull(binder, "binder");
+
+        boolean flushNow;
+        synchronized (lock) {
+            pending.add(new PendingWrite(description, sql, chainKey, binder));
+            flushNow = closed || pending.size() >= maxBatchSize;
+            if (!flushNow && scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::scheduledFlush, maxLingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            List<PendingWrite> batch;
+            synchronized (lock) {
+                batch = drainLocked();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            logger.log(Level.SEVERE, "Scheduled write-behind flush failed", exception);
+        }
+    }
+
+    public Statistics statistics() {
+        synchronized (lock) {
+            return new Statistics(flushedBatches, flushedRows, largestBatch, pending.size());
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lock) {
+            closed = true;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+        flush();
+
+        Statistics statistics = statistics();
+        if (statistics.batches() > 0) {
+            logger.info("Write-behind stored " + statistics.rows() + " records in " + statistics.batches()
+                    + " transactions (average batch " + String.format(Locale.ENGLISH, "%.1f", statistics.averageBatch())
+                    + ", largest " + statistics.largestBatch() + ").");
+        }
+    }
+
+    private List<PendingWrite> drainLocked() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<PendingWrite> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void write(List<PendingWrite> batch) {
+        try {
+            databaseManager.executeInTransaction("Failed to store buffered records", connection -> writeBatch(connection, batch));
+            recordBatch(batch.size());
+        } catch (RuntimeException exception) {
+            logger.log(Level.WARNING, "Batched insert of " + batch.size() + " records failed, retrying individually", exception);
+            writeIndividually(batch);
+        }
+    }
+
+    private void writeBatch(Connection connection, List<PendingWrite> batch) throws SQLException {
+        Map<String, List<PendingWrite>> bySql = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            bySql.computeIfAbsent(write.sql(), ignored -> new ArrayList<>()).add(write);
+        }
+
+        for (Map.Entry<String, List<PendingWrite>> entry : bySql.entrySet()) {
+            try (PreparedStatement statement = connection.prepareStatement(entry.getKey())) {
+                Set<String> batchedChains = new HashSet<>();
+                for (PendingWrite write : entry.getValue()) {
+                    if (write.chainKey() != null && !batchedChains.add(write.chainKey())) {
+                        statement.executeBatch();
+                        batchedChains.clear();
+                        batchedChains.add(write.chainKey());
+                    }
+                    write.binder().bind(statement);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void writeIndividually(List<PendingWrite> batch) {
+        int stored = 0;
+        for (PendingWrite write : batch) {
+            try {
+                databaseManager.executeInTransaction("Failed to store record", connection -> {
+                    try (PreparedStatement statement = connection.prepareStatement(write.sql())) {
+                        write.binder().bind(statement);
+                        statement.executeUpdate();
+                    }
+                });
+                stored++;
+            } catch (RuntimeException exception) {
+                String description = write.description() == null || write.description().isBlank()
+                        ? "buffered record"
+                        : write.description();
+                logger.log(Level.SEVERE, "Failed to store " + description, exception);
+            }
+        }
+        if (stored > 0) {
+            recordBatch(stored);
+        }
+    }
+
+    private void recordBatch(int size) {
+        synchronized (lock) {
+            flushedBatches++;
+            flushedRows += size;
+            largestBatch = Math.max(largestBatch, size);
+        }
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Write-behind committed a batch of " + size + " records.");
+        }
+    }
+
+    @FunctionalInterface
+    public interface StatementBinder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    public record Statistics(long batches, long rows, int largestBatch, int pending) {
+
+        public double averageBatch() {
+            return batches == 0 ? 0.0D : rows / (double) batches;
+        }
+    }
+
+    private record PendingWrite(String description, String sql, String chainKey, StatementBinder binder) {
+    }
+}
@@ -1,10 +1,13 @@
 package com.foxy.inventoryRestore.database.record;
 
+import com.foxy.inventoryRestore.inventory.InventorySummary;
+
 public record DeathRecord(String deathType,
                          String deathDate,
                          String uuid,
                          String nickname,
-                         String inventory,
+                         byte[] inventory,
                          String location,
-                         String world) {
+                         String world,
+                         InventorySummary summary) {
 }
@@ -0,0 +1,8 @@
+package com.foxy.inventoryRestore.database.record;
+
+import com.foxy.inventoryRestore.inventory.SerializedInventory;
+
+import java.util.Optional;
+
+public record DecodedRecord(StoredInventoryRecord record, Optional<SerializedInventory> inventory) {
+}
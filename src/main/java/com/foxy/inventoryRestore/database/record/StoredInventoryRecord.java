@@ -1,5 +1,6 @@
 package com.foxy.inventoryRestore.database.record;
 
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 
 public interface StoredInventoryRecord {
@@ -12,12 +13,14 @@ public interface StoredInventoryRecord {
 
     String nickname();
 
-    String inventory();
+    byte[] inventory();
 
     InventoryRecordType type();
 
     boolean returned();
 
+    InventorySummary summary();
+
     default String location() {
         return "";
     }
@@ -1,5 +1,5 @@
 package com.foxy.inventoryRestore.database.record;
 
-public record StoredPendingInventory(String uuid, String nickname, String inventory) {
+public record StoredPendingInventory(String uuid, String nickname, byte[] inventory) {
 }
 
@@ -1,5 +1,6 @@
 package com.foxy.inventoryRestore.database.record;
 
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 
 public record StoredPlayerInventory(long id,
@@ -7,10 +8,11 @@ public record StoredPlayerInventory(long id,
                                     String eventDate,
                                     String uuid,
                                     String nickname,
-                                    String inventory,
+                                    byte[] inventory,
                                     boolean returned,
                                     String location,
-                                    String world) implements StoredInventoryRecord {
+                                    String world,
+                                    InventorySummary summary) implements StoredInventoryRecord {
 
     @Override
     public String timestamp() {
@@ -1,5 +1,6 @@
 package com.foxy.inventoryRestore.database.record;
 
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 
 public record StoredWorldInventory(long id,
@@ -8,8 +9,9 @@ public record StoredWorldInventory(long id,
                                    String eventDate,
                                    String uuid,
                                    String nickname,
-                                   String inventory,
-                                   boolean returned) implements StoredInventoryRecord {
+                                   byte[] inventory,
+                                   boolean returned,
+                                   InventorySummary summary) implements StoredInventoryRecord {
 
     @Override
     public String timestamp() {
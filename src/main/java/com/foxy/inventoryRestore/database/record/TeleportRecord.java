@@ -1,9 +1,13 @@
 package com.foxy.inventoryRestore.database.record;
 
+import com.foxy.inventoryRestore.database.SnapshotPayload;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
+
 public record TeleportRecord(String fromLocation,
                              String toLocation,
                              String eventDate,
                              String uuid,
                              String nickname,
-                             String inventory) {
+                             SnapshotPayload inventory,
+                             InventorySummary summary) {
 }
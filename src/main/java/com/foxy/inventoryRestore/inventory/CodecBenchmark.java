@@ -0,0 +1,80 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Function;
+
+public final class CodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+
+    private CodecBenchmark() {
+    }
+
+    public static Report compare(List<SerializedInventory> samples) {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            measure(samples, InventorySerializer::serializeObjectStream);
+            measure(samples, InventorySerializer::serializeLegacy);
+            measure(samples, InventorySerializer::serialize);
+        }
+        Result objectStream = measure(samples, InventorySerializer::serializeObjectStream);
+        Result legacy = measure(samples, InventorySerializer::serializeLegacy);
+        Result[] unpooled = new Result[1];
+        CodecBuffers.withoutPooling(() -> unpooled[0] = measure(samples, InventorySerializer::serialize));
+        Result compact = measure(samples, InventorySerializer::serialize);
+        return new Report(ItemStackCodec.compactAvailable(), objectStream, legacy, unpooled[0], compact);
+    }
+
+    private static Result measure(List<SerializedInventory> samples, Function<SerializedInventory, byte[]> encoder) {
+        long bytes = 0L;
+        long encodeNanos = 0L;
+        long decodeNanos = 0L;
+        long allocatedBefore = allocatedBytes();
+        for (SerializedInventory sample : samples) {
+            long started = System.nanoTime();
+            byte[] payload = encoder.apply(sample);
+            encodeNanos += System.nanoTime() - started;
+
+            started = System.nanoTime();
+            InventorySerializer.deserialize(payload);
+            decodeNanos += System.nanoTime() - started;
+            bytes += payload.length;
+        }
+        long allocated = allocatedBefore < 0L ? -1L : allocatedBytes() - allocatedBefore;
+        return new Result(samples.size(), bytes, encodeNanos, decodeNanos, allocated);
+    }
+
+    private static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads)
+                || !threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1L;
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public record Report(boolean compactAvailable, Result objectStream, Result legacy, Result compactUnpooled, Result compact) {
+    }
+
+    public record Result(int inventories, long bytes, long encodeNanos, long decodeNanos, long allocatedBytes) {
+
+        public double averageBytes() {
+            return inventories == 0 ? 0.0D : bytes / (double) inventories;
+        }
+
+        public double averageEncodeMicros() {
+            return inventories == 0 ? 0.0D : encodeNanos / 1000.0D / inventories;
+        }
+
+        public double averageDecodeMicros() {
+            return inventories == 0 ? 0.0D : decodeNanos / 1000.0D / inventories;
+        }
+
+        public boolean allocationMeasured() {
+            return allocatedBytes >= 0L;
+        }
+
+        public double averageAllocatedKilobytes() {
+            return inventories == 0 || allocatedBytes < 0L ? 0.0D : allocatedBytes / 1024.0D / inventories;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class CodecBuffers {
+
+    public static final int ITEM = 0;
+    public static final int TABLE = 1;
+    public static final int COMPRESSED = 2;
+
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int RETAINED_CAPACITY = 256 * 1024;
+    private static final int CHUNK_SIZE = 4096;
+
+    private CodecBuffers() {
+    }
+
+    public static Thread newThread(Runnable runnable, String name) {
+        return new PooledThread(runnable, name);
+    }
+
+    public static Buffer buffer(int role) {
+        Pool pool = pool();
+        if (pool == null || !pool.pooled) {
+            return new Buffer(INITIAL_CAPACITY);
+        }
+        Buffer buffer = pool.buffers[role];
+        if (buffer == null || buffer.capacity() > RETAINED_CAPACITY) {
+            buffer = new Buffer(INITIAL_CAPACITY);
+            pool.buffers[role] = buffer;
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    public static byte[] chunk() {
+        Pool pool = pool();
+        return pool != null && pool.pooled ? pool.chunk : new byte[CHUNK_SIZE];
+    }
+
+    public static Deflater deflater(int level) {
+        Pool pool = pool();
+        if (pool == null || !pool.pooled) {
+            return new Deflater(level);
+        }
+        if (pool.deflater == null) {
+            pool.deflater = new Deflater(level);
+        } else {
+            pool.deflater.reset();
+            pool.deflater.setLevel(level);
+        }
+        return pool.deflater;
+    }
+
+    public static Inflater inflater() {
+        Pool pool = pool();
+        if (pool == null || !pool.pooled) {
+            return new Inflater();
+        }
+        if (pool.inflater == null) {
+            pool.inflater = new Inflater();
+        } else {
+            pool.inflater.reset();
+        }
+        return pool.inflater;
+    }
+
+    public static void release(Deflater deflater) {
+        Pool pool = pool();
+        if (pool == null || deflater != pool.deflater) {
+            deflater.end();
+        }
+    }
+
+    public static void release(Inflater inflater) {
+        Pool pool = pool();
+        if (pool == null || inflater != pool.inflater) {
+            inflater.end();
+        }
+    }
+
+    public static MessageDigest sha256() {
+        Pool pool = pool();
+        if (pool == null || !pool.pooled || pool.digest == null) {
+            MessageDigest digest = newDigest();
+            if (pool != null && pool.pooled) {
+                pool.digest = digest;
+            }
+            return digest;
+        }
+        pool.digest.reset();
+        return pool.digest;
+    }
+
+    public static void withoutPooling(Runnable action) {
+        Pool pool = pool();
+        if (pool == null) {
+            action.run();
+            return;
+        }
+        boolean previous = pool.pooled;
+        pool.pooled = false;
+        try {
+            action.run();
+        } finally {
+            pool.pooled = previous;
+        }
+    }
+
+    private static Pool pool() {
+        return Thread.currentThread() instanceof PooledThread thread ? thread.pool : null;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    public static final class Buffer extends ByteArrayOutputStream {
+
+        private Buffer(int capacity) {
+            super(capacity);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+
+    private static final class PooledThread extends Thread {
+
+        private final Pool pool = new Pool();
+
+        private PooledThread(Runnable runnable, String name) {
+            super(runnable, name);
+        }
+    }
+
+    private static final class Pool {
+
+        private final Buffer[] buffers = new Buffer[3];
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+        private Deflater deflater;
+        private Inflater inflater;
+        private MessageDigest digest;
+        private boolean pooled = true;
+    }
+}
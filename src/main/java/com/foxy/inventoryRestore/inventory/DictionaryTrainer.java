@@ -0,0 +1,108 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class DictionaryTrainer {
+
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int GRAM_SIZE = 8;
+    private static final int SEGMENT_SIZE = 64;
+    private static final int SEGMENT_STRIDE = 16;
+
+    private DictionaryTrainer() {
+    }
+
+    public static byte[] train(List<byte[]> samples, int maxSize) {
+        int limit = Math.max(SEGMENT_SIZE, Math.min(maxSize, MAX_DICTIONARY_SIZE));
+        Map<Long, Integer> documentFrequency = countGrams(samples);
+
+        List<Segment> segments = new ArrayList<>();
+        Set<Integer> seenSegments = new HashSet<>();
+        for (byte[] sample : samples) {
+            for (int start = 0; start + SEGMENT_SIZE <= sample.length; start += SEGMENT_STRIDE) {
+                int score = 0;
+                for (int offset = start; offset + GRAM_SIZE <= start + SEGMENT_SIZE; offset++) {
+                    int frequency = documentFrequency.getOrDefault(gram(sample, offset), 0);
+                    if (frequency > 1) {
+                        score += frequency;
+                    }
+                }
+                if (score == 0) {
+                    continue;
+                }
+                byte[] content = Arrays.copyOfRange(sample, start, start + SEGMENT_SIZE);
+                if (seenSegments.add(Arrays.hashCode(content))) {
+                    segments.add(new Segment(content, score));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(Segment::score).reversed());
+
+        Set<Long> covered = new HashSet<>();
+        List<byte[]> selected = new ArrayList<>();
+        int size = 0;
+        for (Segment segment : segments) {
+            if (size + SEGMENT_SIZE > limit) {
+                break;
+            }
+            int fresh = 0;
+            int total = 0;
+            for (int offset = 0; offset + GRAM_SIZE <= SEGMENT_SIZE; offset++) {
+                total++;
+                if (!covered.contains(gram(segment.content(), offset))) {
+                    fresh++;
+                }
+            }
+            if (fresh * 2 < total) {
+                continue;
+            }
+            for (int offset = 0; offset + GRAM_SIZE <= SEGMENT_SIZE; offset++) {
+                covered.add(gram(segment.content(), offset));
+            }
+            selected.add(segment.content());
+            size += SEGMENT_SIZE;
+        }
+
+        // Deflate reaches the end of the dictionary with the shortest distances, so the best segments go last.
+        byte[] dictionary = new byte[size];
+        int position = size;
+        for (byte[] content : selected) {
+            position -= content.length;
+            System.arraycopy(content, 0, dictionary, position, content.length);
+        }
+        return dictionary;
+    }
+
+    private static Map<Long, Integer> countGrams(List<byte[]> samples) {
+        Map<Long, Integer> frequency = new HashMap<>();
+        for (byte[] sample : samples) {
+            Set<Long> grams = new HashSet<>();
+            for (int offset = 0; offset + GRAM_SIZE <= sample.length; offset++) {
+                grams.add(gram(sample, offset));
+            }
+            for (Long gram : grams) {
+                frequency.merge(gram, 1, Integer::sum);
+            }
+        }
+        return frequency;
+    }
+
+    private static long gram(byte[] data, int offset) {
+        long value = 0L;
+        for (int i = 0; i < GRAM_SIZE; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private record Segment(byte[] content, int score) {
+    }
+}
@@ -0,0 +1,200 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class InventoryCodec {
+
+    public static final int NO_DICTIONARY = 0;
+    public static final int FORMAT_OBJECT_STREAM = 0;
+    public static final int FORMAT_DEFLATE = 1;
+    public static final int FORMAT_SLOT_TABLE = 2;
+    public static final int FORMAT_ITEM_REFS = 3;
+    public static final int FORMAT_ITEM_DELTA = 4;
+    public static final int FORMAT_SPARSE_SLOTS = 5;
+
+    private static final int MAGIC_FIRST = 'I';
+    private static final int MAGIC_SECOND = 'R';
+    private static final int HEADER_SIZE = 5;
+    private static final int STREAM_MAGIC_HIGH = 0xAC;
+    private static final int STREAM_MAGIC_LOW = 0xED;
+
+    private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+    private static volatile int activeDictionary = NO_DICTIONARY;
+
+    private InventoryCodec() {
+    }
+
+    public static void registerDictionary(int id, byte[] dictionary) {
+        if (id <= NO_DICTIONARY || id > 0xFFFF) {
+            throw new IllegalArgumentException("Dictionary id out of range: " + id);
+        }
+        DICTIONARIES.put(id, dictionary.clone());
+    }
+
+    public static void activateDictionary(int id) {
+        if (id != NO_DICTIONARY && !DICTIONARIES.containsKey(id)) {
+            throw new IllegalArgumentException("Unknown dictionary: " + id);
+        }
+        activeDictionary = id;
+    }
+
+    public static int activeDictionary() {
+        return activeDictionary;
+    }
+
+    public static byte[] encode(byte[] raw) {
+        return deflate(FORMAT_DEFLATE, raw, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public static byte[] encodeSlotTable(byte[] body, boolean compress) {
+        return deflate(FORMAT_SLOT_TABLE, body, compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+    }
+
+    public static byte[] encodeSparseSlots(byte[] body) {
+        return deflate(FORMAT_SPARSE_SLOTS, body, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public static byte[] encodeReferences(byte[] body) {
+        return frame(FORMAT_ITEM_REFS, body);
+    }
+
+    public static byte[] encodeDelta(byte[] body) {
+        return frame(FORMAT_ITEM_DELTA, body);
+    }
+
+    public static boolean isReference(byte[] payload) {
+        int format = format(payload);
+        return format == FORMAT_ITEM_REFS || format == FORMAT_ITEM_DELTA;
+    }
+
+    public static boolean isSlotTable(byte[] payload) {
+        int format = format(payload);
+        return format == FORMAT_SLOT_TABLE || format == FORMAT_SPARSE_SLOTS;
+    }
+
+    public static boolean isDictionaryCompressed(byte[] payload) {
+        int format = format(payload);
+        return (format == FORMAT_DEFLATE || format == FORMAT_SPARSE_SLOTS) && dictionaryId(payload) != NO_DICTIONARY;
+    }
+
+    public static int format(byte[] payload) {
+        return isFramed(payload) ? payload[2] & 0xFF : FORMAT_OBJECT_STREAM;
+    }
+
+    private static byte[] deflate(int format, byte[] body, int level) {
+        int dictionaryId = level == Deflater.NO_COMPRESSION ? NO_DICTIONARY : activeDictionary;
+        Deflater deflater = CodecBuffers.deflater(level);
+        try {
+            if (dictionaryId != NO_DICTIONARY) {
+                deflater.setDictionary(DICTIONARIES.get(dictionaryId));
+            }
+            deflater.setInput(body);
+            deflater.finish();
+
+            ByteArrayOutputStream output = CodecBuffers.buffer(CodecBuffers.COMPRESSED);
+            byte[] header = new byte[HEADER_SIZE];
+            writeHeader(header, format, dictionaryId);
+            output.write(header, 0, HEADER_SIZE);
+
+            byte[] buffer = CodecBuffers.chunk();
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                output.write(buffer, 0, written);
+            }
+            return output.toByteArray();
+        } finally {
+            CodecBuffers.release(deflater);
+        }
+    }
+
+    public static byte[] decode(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("Serialized inventory data cannot be null or empty.");
+        }
+        if (isFramed(payload)) {
+            return switch (format(payload)) {
+                case FORMAT_DEFLATE, FORMAT_SLOT_TABLE, FORMAT_SPARSE_SLOTS -> inflate(payload);
+                case FORMAT_ITEM_REFS, FORMAT_ITEM_DELTA -> Arrays.copyOfRange(payload, HEADER_SIZE, payload.length);
+                default -> throw new IllegalStateException("Unsupported inventory payload format: " + format(payload));
+            };
+        }
+        if (isObjectStream(payload)) {
+            return payload;
+        }
+        return Base64.getDecoder().decode(payload);
+    }
+
+    public static boolean isFramed(byte[] payload) {
+        return payload != null
+                && payload.length >= HEADER_SIZE
+                && (payload[0] & 0xFF) == MAGIC_FIRST
+                && (payload[1] & 0xFF) == MAGIC_SECOND;
+    }
+
+    public static int dictionaryId(byte[] payload) {
+        if (!isFramed(payload)) {
+            return NO_DICTIONARY;
+        }
+        return ((payload[3] & 0xFF) << 8) | (payload[4] & 0xFF);
+    }
+
+    private static byte[] frame(int format, byte[] body) {
+        byte[] payload = new byte[HEADER_SIZE + body.length];
+        writeHeader(payload, format, NO_DICTIONARY);
+        System.arraycopy(body, 0, payload, HEADER_SIZE, body.length);
+        return payload;
+    }
+
+    private static void writeHeader(byte[] target, int format, int dictionaryId) {
+        target[0] = (byte) MAGIC_FIRST;
+        target[1] = (byte) MAGIC_SECOND;
+        target[2] = (byte) format;
+        target[3] = (byte) (dictionaryId >>> 8);
+        target[4] = (byte) dictionaryId;
+    }
+
+    private static boolean isObjectStream(byte[] payload) {
+        return payload.length >= 2
+                && (payload[0] & 0xFF) == STREAM_MAGIC_HIGH
+                && (payload[1] & 0xFF) == STREAM_MAGIC_LOW;
+    }
+
+    private static byte[] inflate(byte[] payload) {
+        int dictionaryId = dictionaryId(payload);
+        Inflater inflater = CodecBuffers.inflater();
+        try {
+            inflater.setInput(payload, HEADER_SIZE, payload.length - HEADER_SIZE);
+            ByteArrayOutputStream output = CodecBuffers.buffer(CodecBuffers.COMPRESSED);
+            byte[] buffer = CodecBuffers.chunk();
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0) {
+                    if (inflater.needsDictionary()) {
+                        byte[] dictionary = DICTIONARIES.get(dictionaryId);
+                        if (dictionary == null) {
+                            throw new IllegalStateException("Missing compression dictionary: " + dictionaryId);
+                        }
+                        inflater.setDictionary(dictionary);
+                        continue;
+                    }
+                    if (inflater.needsInput()) {
+                        throw new IllegalStateException("Truncated inventory payload");
+                    }
+                }
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException exception) {
+            throw new IllegalStateException("Corrupted inventory payload", exception);
+        } finally {
+            CodecBuffers.release(inflater);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.foxy.inventoryRestore.inventory;
+
+import org.bukkit.inventory.ItemStack;
+
+public final class InventoryFingerprint {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private InventoryFingerprint() {
+    }
+
+    public static long of(SerializedInventory inventory) {
+        long fingerprint = SEED;
+        for (int section = SlotTable.CONTENTS; section <= SlotTable.EXTRA; section++) {
+            int size = inventory.size(section);
+            fingerprint = mix(fingerprint ^ ((long) section << 32 | size));
+            for (int slot = 0; slot < size; slot++) {
+                ItemStack item = inventory.item(section, slot);
+                if (item == null || item.getType().isAir()) {
+                    continue;
+                }
+                long entry = ((long) slot << 48) ^ ((long) item.getType().ordinal() << 16) ^ item.getAmount();
+                fingerprint = mix(fingerprint ^ mix(entry) ^ (item.hashCode() & 0xFFFFFFFFL));
+            }
+        }
+        return fingerprint;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -14,7 +14,6 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -28,7 +27,7 @@ public final class InventorySerializer {
     private InventorySerializer() {
     }
 
-    public static String serialize(PlayerInventory inventory) {
+    public static byte[] serialize(PlayerInventory inventory) {
         return serialize(capture(inventory));
     }
 
@@ -39,32 +38,43 @@ public final class InventorySerializer {
         return new SerializedInventory(contents, armor, extra);
     }
 
-    public static String serialize(SerializedInventory inventory) {
-        try {
-            ItemStack[] contents = safeItems(inventory.contents());
-            ItemStack[] armor = safeItems(inventory.armor());
-            ItemStack[] extra = safeItems(inventory.extra());
-
-            try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                 BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
-                writeItems(dataOutput, contents);
-                writeItems(dataOutput, armor);
-                writeItems(dataOutput, extra);
-                dataOutput.flush();
-                return Base64.getEncoder().encodeToString(outputStream.toByteArray());
-            }
+    public static byte[] serialize(SerializedInventory inventory) {
+        return InventoryCodec.encodeSparseSlots(toSlotTable(inventory, false).toSparseBytes());
+    }
+
+    static byte[] serializeObjectStream(SerializedInventory inventory) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+            writeItems(dataOutput, safeItems(inventory.contents()));
+            writeItems(dataOutput, safeItems(inventory.armor()));
+            writeItems(dataOutput, safeItems(inventory.extra()));
+            dataOutput.flush();
         } catch (IOException exception) {
             throw new IllegalStateException("Failed to serialize player inventory", exception);
         }
+        return outputStream.toByteArray();
+    }
+
+    static byte[] serializeLegacy(SerializedInventory inventory) {
+        return InventoryCodec.encodeSlotTable(toSlotTable(inventory, true).toBytes(), true);
+    }
+
+    public static SerializedInventory deserialize(byte[] serialized) {
+        SerializedInventory inventory = deserializeLazily(serialized);
+        inventory.decodeAll();
+        return inventory;
     }
 
-    public static SerializedInventory deserialize(String serialized) {
-        if (serialized == null || serialized.isEmpty()) {
-            throw new IllegalArgumentException("Serialized inventory data cannot be null or empty.");
+    public static SerializedInventory deserializeLazily(byte[] serialized) {
+        if (InventoryCodec.isReference(serialized)) {
+            throw new IllegalStateException("Item references must be resolved before the inventory can be read.");
+        }
+
+        if (InventoryCodec.isSlotTable(serialized)) {
+            return SerializedInventory.lazy(SlotTable.read(serialized), STORAGE_SIZE);
         }
 
-        byte[] raw = Base64.getDecoder().decode(serialized);
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(raw);
+        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(InventoryCodec.decode(serialized));
              BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
             ItemStack[] contents = trimStorage(readItems(dataInput));
             ItemStack[] armor = readItems(dataInput);
@@ -142,9 +152,40 @@ public final class InventorySerializer {
     }
 
     public static int countItems(SerializedInventory inventory) {
-        return countItems(inventory.contents())
-                + countItems(inventory.armor())
-                + countItems(inventory.extra());
+        int count = 0;
+        for (int section = SlotTable.CONTENTS; section <= SlotTable.EXTRA; section++) {
+            for (int slot = 0; slot < inventory.size(section); slot++) {
+                ItemStack item = inventory.item(section, slot);
+                if (!isAir(item)) {
+                    count += item.getAmount();
+                }
+            }
+        }
+        return count;
+    }
+
+    private static SlotTable toSlotTable(SerializedInventory inventory, boolean legacy) {
+        try {
+            return new SlotTable(
+                    serializeItems(safeItems(inventory.contents()), legacy),
+                    serializeItems(safeItems(inventory.armor()), legacy),
+                    serializeItems(safeItems(inventory.extra()), legacy)
+            );
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to serialize player inventory", exception);
+        }
+    }
+
+    private static byte[][] serializeItems(ItemStack[] items, boolean legacy) throws IOException {
+        byte[][] entries = new byte[items.length][];
+        for (int i = 0; i < items.length; i++) {
+            if (isAir(items[i])) {
+                entries[i] = new byte[0];
+                continue;
+            }
+            entries[i] = legacy ? ItemStackCodec.encodeLegacy(items[i]) : ItemStackCodec.encode(items[i]);
+        }
+        return entries;
     }
 
     private static void writeItems(BukkitObjectOutputStream outputStream, ItemStack[] items) throws IOException {
@@ -214,7 +255,11 @@ public final class InventorySerializer {
         }
 
         List<ItemStack> filtered = new ArrayList<>();
-        addItems(filtered, contents);
+        for (ItemStack item : contents) {
+            if (!isAir(item)) {
+                filtered.add(item.clone());
+            }
+        }
         if (filtered.isEmpty()) {
             return Collections.emptyList();
         }
@@ -278,14 +323,4 @@ public final class InventorySerializer {
 
         return List.of(item.clone());
     }
-
-    private static int countItems(ItemStack[] items) {
-        int count = 0;
-        for (ItemStack item : items) {
-            if (!isAir(item)) {
-                count += item.getAmount();
-            }
-        }
-        return count;
-    }
 }
@@ -0,0 +1,85 @@
+package com.foxy.inventoryRestore.inventory;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public record InventorySummary(int itemCount, int slotCount, List<String> notableMaterials) {
+
+    public static final InventorySummary EMPTY = new InventorySummary(0, 0, List.of());
+
+    private static final int NOTABLE_MATERIALS = 3;
+    private static final String SEPARATOR = ",";
+
+    public InventorySummary {
+        notableMaterials = List.copyOf(notableMaterials);
+    }
+
+    public static InventorySummary of(SerializedInventory inventory) {
+        Map<Material, Integer> amounts = new EnumMap<>(Material.class);
+        int slots = 0;
+        int items = 0;
+        for (int section = SlotTable.CONTENTS; section <= SlotTable.EXTRA; section++) {
+            for (int slot = 0; slot < inventory.size(section); slot++) {
+                ItemStack item = inventory.item(section, slot);
+                if (item == null || item.getType().isAir()) {
+                    continue;
+                }
+                slots++;
+                items += item.getAmount();
+                amounts.merge(item.getType(), item.getAmount(), Integer::sum);
+            }
+        }
+
+        List<Map.Entry<Material, Integer>> ranked = new ArrayList<>(amounts.entrySet());
+        ranked.sort(Map.Entry.<Material, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+        List<String> notable = new ArrayList<>(NOTABLE_MATERIALS);
+        for (int i = 0; i < ranked.size() && i < NOTABLE_MATERIALS; i++) {
+            notable.add(ranked.get(i).getKey().name());
+        }
+        return new InventorySummary(items, slots, notable);
+    }
+
+    public static InventorySummary fromColumns(int itemCount, int slotCount, String materials) {
+        if (materials == null || materials.isEmpty()) {
+            return new InventorySummary(itemCount, slotCount, List.of());
+        }
+        return new InventorySummary(itemCount, slotCount, List.of(materials.split(SEPARATOR)));
+    }
+
+    public String materialsColumn() {
+        return String.join(SEPARATOR, notableMaterials);
+    }
+
+    public String describeMaterials() {
+        if (notableMaterials.isEmpty()) {
+            return "-";
+        }
+        List<String> names = new ArrayList<>(notableMaterials.size());
+        for (String material : notableMaterials) {
+            names.add(displayName(material));
+        }
+        return String.join(", ", names);
+    }
+
+    private static String displayName(String material) {
+        String[] words = material.toLowerCase(Locale.ENGLISH).split("_");
+        StringBuilder builder = new StringBuilder(material.length());
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.foxy.inventoryRestore.inventory;
+
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+public final class ItemStackCodec {
+
+    private static final int MAGIC_FIRST = 'I';
+    private static final int MAGIC_SECOND = 'S';
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 3;
+
+    private static final Method SERIALIZE_AS_BYTES = findMethod("serializeAsBytes");
+    private static final Method DESERIALIZE_BYTES = findMethod("deserializeBytes", byte[].class);
+
+    private ItemStackCodec() {
+    }
+
+    public static boolean compactAvailable() {
+        return SERIALIZE_AS_BYTES != null && DESERIALIZE_BYTES != null;
+    }
+
+    public static byte[] encode(ItemStack item) throws IOException {
+        return compactAvailable() ? encodeCompact(item) : encodeLegacy(item);
+    }
+
+    public static byte[] encodeLegacy(ItemStack item) throws IOException {
+        ByteArrayOutputStream outputStream = CodecBuffers.buffer(CodecBuffers.ITEM);
+        try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+            dataOutput.writeObject(item);
+            dataOutput.flush();
+            return outputStream.toByteArray();
+        }
+    }
+
+    public static ItemStack decode(byte[] entry) throws IOException, ClassNotFoundException {
+        if (!isCompact(entry)) {
+            try (ByteArrayInputStream inputStream = new ByteArrayInputStream(entry);
+                 BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream)) {
+                return (ItemStack) dataInput.readObject();
+            }
+        }
+
+        int version = entry[2] & 0xFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported item encoding version: " + version);
+        }
+        if (DESERIALIZE_BYTES == null) {
+            throw new IOException("This server cannot read compact item stacks.");
+        }
+        byte[] body = new byte[entry.length - HEADER_SIZE];
+        System.arraycopy(entry, HEADER_SIZE, body, 0, body.length);
+        return (ItemStack) invoke(DESERIALIZE_BYTES, null, body);
+    }
+
+    public static boolean isCompact(byte[] entry) {
+        return entry != null
+                && entry.length > HEADER_SIZE
+                && (entry[0] & 0xFF) == MAGIC_FIRST
+                && (entry[1] & 0xFF) == MAGIC_SECOND;
+    }
+
+    private static byte[] encodeCompact(ItemStack item) throws IOException {
+        byte[] body = (byte[]) invoke(SERIALIZE_AS_BYTES, item);
+        byte[] entry = new byte[HEADER_SIZE + body.length];
+        entry[0] = (byte) MAGIC_FIRST;
+        entry[1] = (byte) MAGIC_SECOND;
+        entry[2] = (byte) VERSION;
+        System.arraycopy(body, 0, entry, HEADER_SIZE, body.length);
+        return entry;
+    }
+
+    private static Object invoke(Method method, Object target, Object... arguments) throws IOException {
+        try {
+            return method.invoke(target, arguments);
+        } catch (IllegalAccessException exception) {
+            throw new IOException("Cannot access " + method.getName(), exception);
+        } catch (InvocationTargetException exception) {
+            throw new IOException("Item stack " + method.getName() + " failed", exception.getCause());
+        }
+    }
+
+    private static Method findMethod(String name, Class<?>... parameters) {
+        try {
+            return ItemStack.class.getMethod(name, parameters);
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+}
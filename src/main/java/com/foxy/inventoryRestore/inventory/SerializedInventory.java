@@ -2,5 +2,103 @@ package com.foxy.inventoryRestore.inventory;
 
 import org.bukkit.inventory.ItemStack;
 
-public record SerializedInventory(ItemStack[] contents, ItemStack[] armor, ItemStack[] extra) {
+import java.io.IOException;
+
+public final class SerializedInventory {
+
+    private static final long DECODED_ITEM_BYTES = 1024L;
+    private static final long ENCODED_EXPANSION = 4L;
+
+    private final ItemStack[][] sections;
+    private final byte[][][] pending;
+
+    public SerializedInventory(ItemStack[] contents, ItemStack[] armor, ItemStack[] extra) {
+        this.sections = new ItemStack[][]{contents, armor, extra};
+        this.pending = null;
+    }
+
+    private SerializedInventory(byte[][][] encoded) {
+        this.sections = new ItemStack[encoded.length][];
+        this.pending = encoded;
+        for (int section = 0; section < encoded.length; section++) {
+            sections[section] = new ItemStack[encoded[section].length];
+        }
+    }
+
+    static SerializedInventory lazy(SlotTable table, int contentsLimit) {
+        byte[][][] encoded = new byte[table.sectionCount()][][];
+        for (int section = 0; section < encoded.length; section++) {
+            byte[][] entries = table.section(section);
+            int length = section == SlotTable.CONTENTS ? Math.min(entries.length, contentsLimit) : entries.length;
+            encoded[section] = new byte[length][];
+            for (int slot = 0; slot < length; slot++) {
+                encoded[section][slot] = SlotTable.isEmpty(entries[slot]) ? null : entries[slot];
+            }
+        }
+        return new SerializedInventory(encoded);
+    }
+
+    public ItemStack[] contents() {
+        return section(SlotTable.CONTENTS);
+    }
+
+    public ItemStack[] armor() {
+        return section(SlotTable.ARMOR);
+    }
+
+    public ItemStack[] extra() {
+        return section(SlotTable.EXTRA);
+    }
+
+    public int size(int section) {
+        return sections[section].length;
+    }
+
+    public synchronized ItemStack item(int section, int slot) {
+        ItemStack[] items = sections[section];
+        if (slot < 0 || slot >= items.length) {
+            return null;
+        }
+        if (pending != null && pending[section][slot] != null) {
+            items[slot] = decode(pending[section][slot], section, slot);
+            pending[section][slot] = null;
+        }
+        return items[slot];
+    }
+
+    public synchronized ItemStack[] section(int section) {
+        for (int slot = 0; pending != null && slot < sections[section].length; slot++) {
+            item(section, slot);
+        }
+        return sections[section];
+    }
+
+    public synchronized long estimatedHeapBytes() {
+        long total = 0L;
+        for (int section = 0; section < sections.length; section++) {
+            for (int slot = 0; slot < sections[section].length; slot++) {
+                byte[] encoded = pending == null ? null : pending[section][slot];
+                if (encoded != null) {
+                    total += DECODED_ITEM_BYTES + encoded.length * ENCODED_EXPANSION;
+                } else if (sections[section][slot] != null) {
+                    total += DECODED_ITEM_BYTES;
+                }
+            }
+        }
+        return total;
+    }
+
+    public void decodeAll() {
+        for (int section = 0; section < sections.length; section++) {
+            section(section);
+        }
+    }
+
+    private static ItemStack decode(byte[] entry, int section, int slot) {
+        try {
+            return ItemStackCodec.decode(entry);
+        } catch (IOException | ClassNotFoundException | ClassCastException exception) {
+            throw new IllegalStateException("Failed to deserialize inventory slot " + slot + " of section " + section, exception);
+        }
+    }
 }
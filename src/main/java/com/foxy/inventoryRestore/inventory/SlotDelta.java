@@ -0,0 +1,137 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class SlotDelta {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private SlotDelta() {
+    }
+
+    public static int changedSlots(SlotTable base, SlotTable target) {
+        int changed = 0;
+        for (int section = 0; section < target.sectionCount(); section++) {
+            byte[][] before = base.section(section);
+            byte[][] after = target.section(section);
+            for (int slot = 0; slot < after.length; slot++) {
+                if (slot >= before.length || !sameEntry(before[slot], after[slot])) {
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    public static int slotCount(SlotTable table) {
+        int count = 0;
+        for (int section = 0; section < table.sectionCount(); section++) {
+            count += table.section(section).length;
+        }
+        return count;
+    }
+
+    public static byte[] diff(SlotTable base, SlotTable target) {
+        ByteArrayOutputStream buffer = CodecBuffers.buffer(CodecBuffers.TABLE);
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            for (int section = 0; section < target.sectionCount(); section++) {
+                byte[][] before = base.section(section);
+                byte[][] after = target.section(section);
+                List<Integer> changes = new ArrayList<>();
+                for (int slot = 0; slot < after.length; slot++) {
+                    if (slot >= before.length || !sameEntry(before[slot], after[slot])) {
+                        changes.add(slot);
+                    }
+                }
+
+                output.writeInt(after.length);
+                output.writeInt(changes.size());
+                for (int slot : changes) {
+                    byte[] entry = SlotTable.isEmpty(after[slot]) ? EMPTY : after[slot];
+                    output.writeInt(slot);
+                    output.writeInt(entry.length);
+                    output.write(entry);
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to write inventory delta", exception);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static SlotTable apply(SlotTable base, byte[] body) {
+        byte[][][] sections = new byte[base.sectionCount()][][];
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            for (int section = 0; section < sections.length; section++) {
+                int length = input.readInt();
+                byte[][] entries = Arrays.copyOf(base.section(section), length);
+                for (int slot = 0; slot < length; slot++) {
+                    if (entries[slot] == null) {
+                        entries[slot] = EMPTY;
+                    }
+                }
+
+                int changes = input.readInt();
+                for (int i = 0; i < changes; i++) {
+                    int slot = input.readInt();
+                    byte[] entry = readEntry(input);
+                    if (slot < 0 || slot >= length) {
+                        throw new IOException("Delta slot out of range: " + slot);
+                    }
+                    entries[slot] = entry;
+                }
+                sections[section] = entries;
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to read inventory delta", exception);
+        }
+        return new SlotTable(sections[SlotTable.CONTENTS], sections[SlotTable.ARMOR], sections[SlotTable.EXTRA]);
+    }
+
+    public static List<byte[]> entries(byte[] body) {
+        List<byte[]> entries = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            while (input.available() > 0) {
+                input.readInt();
+                int changes = input.readInt();
+                for (int i = 0; i < changes; i++) {
+                    input.readInt();
+                    byte[] entry = readEntry(input);
+                    if (!SlotTable.isEmpty(entry)) {
+                        entries.add(entry);
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to read inventory delta", exception);
+        }
+        return entries;
+    }
+
+    private static byte[] readEntry(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        if (size < 0 || size > input.available()) {
+            throw new IOException("Invalid delta entry size: " + size);
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        byte[] entry = new byte[size];
+        input.readFully(entry);
+        return entry;
+    }
+
+    private static boolean sameEntry(byte[] first, byte[] second) {
+        if (SlotTable.isEmpty(first) || SlotTable.isEmpty(second)) {
+            return SlotTable.isEmpty(first) == SlotTable.isEmpty(second);
+        }
+        return Arrays.equals(first, second);
+    }
+}
@@ -0,0 +1,159 @@
+package com.foxy.inventoryRestore.inventory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public final class SlotTable {
+
+    public static final int CONTENTS = 0;
+    public static final int ARMOR = 1;
+    public static final int EXTRA = 2;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final byte[][][] sections;
+
+    public SlotTable(byte[][] contents, byte[][] armor, byte[][] extra) {
+        this.sections = new byte[][][]{contents, armor, extra};
+    }
+
+    public byte[][] section(int index) {
+        return sections[index];
+    }
+
+    public int sectionCount() {
+        return sections.length;
+    }
+
+    public static boolean isEmpty(byte[] entry) {
+        return entry == null || entry.length == 0;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream buffer = CodecBuffers.buffer(CodecBuffers.TABLE);
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            for (byte[][] section : sections) {
+                output.writeInt(section.length);
+                for (byte[] entry : section) {
+                    if (isEmpty(entry)) {
+                        output.writeInt(0);
+                        continue;
+                    }
+                    output.writeInt(entry.length);
+                    output.write(entry);
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to write inventory slot table", exception);
+        }
+        return buffer.toByteArray();
+    }
+
+    public byte[] toSparseBytes() {
+        ByteArrayOutputStream buffer = CodecBuffers.buffer(CodecBuffers.TABLE);
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            for (byte[][] section : sections) {
+                int present = 0;
+                for (byte[] entry : section) {
+                    if (!isEmpty(entry)) {
+                        present++;
+                    }
+                }
+                output.writeShort(section.length);
+                output.writeShort(present);
+                for (int slot = 0; slot < section.length; slot++) {
+                    if (isEmpty(section[slot])) {
+                        continue;
+                    }
+                    output.writeShort(slot);
+                    output.writeInt(section[slot].length);
+                    output.write(section[slot]);
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to write inventory slot table", exception);
+        }
+        return buffer.toByteArray();
+    }
+
+    public static SlotTable read(byte[] payload) {
+        byte[] body = InventoryCodec.decode(payload);
+        return InventoryCodec.format(payload) == InventoryCodec.FORMAT_SPARSE_SLOTS ? fromSparseBytes(body) : fromBytes(body);
+    }
+
+    public static SlotTable fromSparseBytes(byte[] body) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte[][] contents = readSparseSection(input);
+            byte[][] armor = readSparseSection(input);
+            byte[][] extra = readSparseSection(input);
+            return new SlotTable(contents, armor, extra);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to read inventory slot table", exception);
+        }
+    }
+
+    public static SlotTable fromBytes(byte[] body) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(body))) {
+            byte[][] contents = readSection(input);
+            byte[][] armor = readSection(input);
+            byte[][] extra = readSection(input);
+            return new SlotTable(contents, armor, extra);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to read inventory slot table", exception);
+        }
+    }
+
+    private static byte[][] readSection(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > remaining(input)) {
+            throw new IOException("Invalid slot count: " + length);
+        }
+        byte[][] entries = new byte[length][];
+        for (int i = 0; i < length; i++) {
+            int size = input.readInt();
+            if (size < 0 || size > remaining(input)) {
+                throw new IOException("Invalid slot size: " + size);
+            }
+            if (size == 0) {
+                entries[i] = EMPTY;
+                continue;
+            }
+            byte[] entry = new byte[size];
+            input.readFully(entry);
+            entries[i] = entry;
+        }
+        return entries;
+    }
+
+    private static byte[][] readSparseSection(DataInputStream input) throws IOException {
+        int length = input.readUnsignedShort();
+        int present = input.readUnsignedShort();
+        if (present > length) {
+            throw new IOException("Invalid slot count: " + present + " of " + length);
+        }
+        byte[][] entries = new byte[length][];
+        Arrays.fill(entries, EMPTY);
+        for (int i = 0; i < present; i++) {
+            int slot = input.readUnsignedShort();
+            int size = input.readInt();
+            if (slot >= length) {
+                throw new IOException("Slot out of range: " + slot);
+            }
+            if (size <= 0 || size > remaining(input)) {
+                throw new IOException("Invalid slot size: " + size);
+            }
+            byte[] entry = new byte[size];
+            input.readFully(entry);
+            entries[slot] = entry;
+        }
+        return entries;
+    }
+
+    private static int remaining(DataInputStream input) throws IOException {
+        return input.available();
+    }
+}
@@ -19,8 +19,13 @@ public enum InventoryRecordType {
         return key;
     }
 
-    public String tableName() {
-        return key;
+    public static InventoryRecordType fromKey(String key) {
+        for (InventoryRecordType type : values()) {
+            if (type.key.equals(key)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown inventory record type: " + key);
     }
 
     public boolean usesReturnedFlag() {
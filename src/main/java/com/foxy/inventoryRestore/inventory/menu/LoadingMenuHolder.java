@@ -0,0 +1,17 @@
+package com.foxy.inventoryRestore.inventory.menu;
+
+import org.bukkit.inventory.Inventory;
+
+public final class LoadingMenuHolder extends AbstractRestoreInventoryHolder {
+
+    private final Inventory previous;
+
+    public LoadingMenuHolder(int size, String title, Inventory previous) {
+        super(size, title);
+        this.previous = previous;
+    }
+
+    public Inventory getPrevious() {
+        return previous;
+    }
+}
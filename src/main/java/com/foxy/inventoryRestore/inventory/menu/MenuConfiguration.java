@@ -17,6 +17,7 @@ public final class MenuConfiguration {
     private static final int DEFAULT_DEATH_MENU_SIZE = 54;
     private static final String MENU_FILE = "invconfig.yml";
     private static final int DEFAULT_RESTORE_ACTION_MENU_SIZE = 9;
+    private static final int DEFAULT_LOADING_MENU_SIZE = 9;
 
     private final InventoryRestore plugin;
     private FileConfiguration configuration;
@@ -117,6 +118,18 @@ public final class MenuConfiguration {
         return new MenuItem(slot, material);
     }
 
+    public int getLoadingMenuSize() {
+        ensureConfiguration();
+        return configuration.getInt("menus.loading.size", DEFAULT_LOADING_MENU_SIZE);
+    }
+
+    public MenuItem getLoadingItem(int defaultSlot, Material defaultMaterial) {
+        ensureConfiguration();
+        int slot = configuration.getInt("menus.loading.item.slot", defaultSlot);
+        Material material = getMaterial("menus.loading.item.material", defaultMaterial);
+        return new MenuItem(slot, material);
+    }
+
     public int getEquipmentSlot(String key, int defaultSlot) {
         ensureConfiguration();
         return configuration.getInt("menus.death-detail.equipment-slots." + key, defaultSlot);
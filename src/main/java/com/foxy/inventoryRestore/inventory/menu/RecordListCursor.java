@@ -0,0 +1,39 @@
+package com.foxy.inventoryRestore.inventory.menu;
+
+import java.util.Arrays;
+
+public final class RecordListCursor {
+
+    private static final RecordListCursor FIRST = new RecordListCursor(new long[]{Long.MAX_VALUE});
+
+    private final long[] anchors;
+
+    private RecordListCursor(long[] anchors) {
+        this.anchors = anchors;
+    }
+
+    public static RecordListCursor first() {
+        return FIRST;
+    }
+
+    public int page() {
+        return anchors.length - 1;
+    }
+
+    public long beforeId() {
+        return anchors[anchors.length - 1];
+    }
+
+    public RecordListCursor next(long lastSeenId) {
+        long[] trail = Arrays.copyOf(anchors, anchors.length + 1);
+        trail[anchors.length] = lastSeenId;
+        return new RecordListCursor(trail);
+    }
+
+    public RecordListCursor previous() {
+        if (anchors.length == 1) {
+            return this;
+        }
+        return new RecordListCursor(Arrays.copyOf(anchors, anchors.length - 1));
+    }
+}
@@ -4,13 +4,15 @@ public final class RecordListHolder extends AbstractRestoreInventoryHolder {
 
     private final InventoryRecordType type;
     private final String targetName;
-    private final int page;
+    private final RecordListCursor cursor;
+    private final long lastRecordId;
 
-    public RecordListHolder(int size, String title, InventoryRecordType type, String targetName, int page) {
+    public RecordListHolder(int size, String title, InventoryRecordType type, String targetName, RecordListCursor cursor, long lastRecordId) {
         super(size, title);
         this.type = type;
         this.targetName = targetName;
-        this.page = page;
+        this.cursor = cursor;
+        this.lastRecordId = lastRecordId;
     }
 
     public InventoryRecordType getType() {
@@ -21,7 +23,11 @@ public final class RecordListHolder extends AbstractRestoreInventoryHolder {
         return targetName;
     }
 
-    public int getPage() {
-        return page;
+    public RecordListCursor getCursor() {
+        return cursor;
+    }
+
+    public long getLastRecordId() {
+        return lastRecordId;
     }
 }
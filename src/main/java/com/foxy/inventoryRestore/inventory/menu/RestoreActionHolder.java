@@ -5,14 +5,16 @@ public final class RestoreActionHolder extends AbstractRestoreInventoryHolder {
     private final InventoryRecordType type;
     private final long recordId;
     private final String targetName;
-    private final int page;
+    private final RecordListCursor cursor;
+    private final InventoryRecordType listType;
 
-    public RestoreActionHolder(int size, String title, InventoryRecordType type, long recordId, String targetName, int page) {
+    public RestoreActionHolder(int size, String title, InventoryRecordType type, long recordId, String targetName, RecordListCursor cursor, InventoryRecordType listType) {
         super(size, title);
         this.type = type;
         this.recordId = recordId;
         this.targetName = targetName;
-        this.page = page;
+        this.cursor = cursor;
+        this.listType = listType;
     }
 
     public InventoryRecordType getType() {
@@ -27,7 +29,11 @@ public final class RestoreActionHolder extends AbstractRestoreInventoryHolder {
         return targetName;
     }
 
-    public int getPage() {
-        return page;
+    public RecordListCursor getCursor() {
+        return cursor;
+    }
+
+    public InventoryRecordType getListType() {
+        return listType;
     }
 }
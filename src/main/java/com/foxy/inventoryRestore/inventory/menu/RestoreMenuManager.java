@@ -1,17 +1,17 @@
 package com.foxy.inventoryRestore.inventory.menu;
 
 import com.foxy.inventoryRestore.InventoryRestore;
-import com.foxy.inventoryRestore.database.DeathInventoryRepository;
-import com.foxy.inventoryRestore.database.PlayerSnapshotRepository;
-import com.foxy.inventoryRestore.database.TeleportRepository;
-import com.foxy.inventoryRestore.database.WorldChangeRepository;
+import com.foxy.inventoryRestore.database.InventoryStorage;
+import com.foxy.inventoryRestore.database.record.DecodedRecord;
 import com.foxy.inventoryRestore.database.record.StoredDeathInventory;
 import com.foxy.inventoryRestore.database.record.StoredInventoryRecord;
 import com.foxy.inventoryRestore.database.record.StoredTeleportInventory;
 import com.foxy.inventoryRestore.database.record.StoredWorldInventory;
 import com.foxy.inventoryRestore.inventory.InventoryLayoutService;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.SlotTable;
 import com.foxy.inventoryRestore.message.MessageService;
 import com.foxy.inventoryRestore.util.LocationFormats;
 import org.bukkit.Bukkit;
@@ -33,34 +33,39 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public final class RestoreMenuManager implements Listener {
 
-    private final InventoryRestore plugin;
     private final MessageService messageService;
     private final InventoryLayoutService layoutService;
-    private final DeathInventoryRepository deathRepository;
-    private final PlayerSnapshotRepository snapshotRepository;
-    private final WorldChangeRepository worldRepository;
-    private final TeleportRepository teleportRepository;
+    private final InventoryStorage storage;
     private final NamespacedKey recordIdKey;
+    private final NamespacedKey recordTypeKey;
+    private final Set<UUID> busyViewers = ConcurrentHashMap.newKeySet();
 
     private final int mainMenuSize;
     private final int listMenuSize;
     private final int detailMenuSize;
     private final int restoreActionMenuSize;
+    private final int loadingMenuSize;
     private final MenuConfiguration.MenuItem mainDeathItem;
     private final MenuConfiguration.MenuItem mainWorldItem;
     private final MenuConfiguration.MenuItem mainTeleportItem;
     private final MenuConfiguration.MenuItem mainConnectionItem;
     private final MenuConfiguration.MenuItem mainDisconnectionItem;
+    private final MenuConfiguration.MenuItem mainTimelineItem;
     private final MenuConfiguration.MenuItem restoreActionItem;
     private final MenuConfiguration.MenuItem eraseActionItem;
     private final MenuConfiguration.MenuItem directRestoreItem;
     private final MenuConfiguration.MenuItem shulkerRestoreItem;
     private final MenuConfiguration.MenuItem previousPageItem;
     private final MenuConfiguration.MenuItem nextPageItem;
+    private final MenuConfiguration.MenuItem loadingItem;
     private final int offhandSlot;
     private final int bootsSlot;
     private final int leggingsSlot;
@@ -74,29 +79,25 @@ public final class RestoreMenuManager implements Listener {
                               MessageService messageService,
                               InventoryLayoutService layoutService,
                               MenuConfiguration menuConfiguration,
-                              DeathInventoryRepository deathRepository,
-                              PlayerSnapshotRepository snapshotRepository,
-                              WorldChangeRepository worldRepository,
-                              TeleportRepository teleportRepository) {
-        this.plugin = plugin;
+                              InventoryStorage storage) {
         this.messageService = messageService;
         this.layoutService = layoutService;
-        this.deathRepository = deathRepository;
-        this.snapshotRepository = snapshotRepository;
-        this.worldRepository = worldRepository;
-        this.teleportRepository = teleportRepository;
+        this.storage = storage;
         this.recordIdKey = new NamespacedKey(plugin, "inventory-record-id");
+        this.recordTypeKey = new NamespacedKey(plugin, "inventory-record-type");
 
         this.mainMenuSize = menuConfiguration.getMainMenuSize();
         this.listMenuSize = menuConfiguration.getDeathListSize();
         this.detailMenuSize = menuConfiguration.getDeathDetailSize();
         this.restoreActionMenuSize = menuConfiguration.getRestoreActionMenuSize();
+        this.loadingMenuSize = menuConfiguration.getLoadingMenuSize();
 
         this.mainDeathItem = menuConfiguration.getMainMenuItem("death", 1, Material.SKELETON_SKULL);
         this.mainWorldItem = menuConfiguration.getMainMenuItem("world", 3, Material.GRASS_BLOCK);
         this.mainTeleportItem = menuConfiguration.getMainMenuItem("teleport", 5, Material.ENDER_PEARL);
         this.mainConnectionItem = menuConfiguration.getMainMenuItem("connection", 11, Material.LIME_WOOL);
         this.mainDisconnectionItem = menuConfiguration.getMainMenuItem("disconnection", 13, Material.PINK_WOOL);
+        this.mainTimelineItem = menuConfiguration.getMainMenuItem("timeline", 16, Material.COMPASS);
 
         this.restoreActionItem = menuConfiguration.getDeathDetailAction("restore", 45, Material.LIME_WOOL);
         this.eraseActionItem = menuConfiguration.getDeathDetailAction("erase", 53, Material.PINK_WOOL);
@@ -104,6 +105,7 @@ public final class RestoreMenuManager implements Listener {
         this.shulkerRestoreItem = menuConfiguration.getRestoreActionMenuItem("shulker-restore", 5, Material.SHULKER_BOX);
         this.previousPageItem = menuConfiguration.getDeathListNavigationItem("previous", 45, Material.ARROW);
         this.nextPageItem = menuConfiguration.getDeathListNavigationItem("next", 53, Material.ARROW);
+        this.loadingItem = menuConfiguration.getLoadingItem(4, Material.CLOCK);
 
         this.offhandSlot = menuConfiguration.getEquipmentSlot("offhand", 47);
         this.bootsSlot = menuConfiguration.getEquipmentSlot("boots", 48);
@@ -117,6 +119,18 @@ public final class RestoreMenuManager implements Listener {
     }
 
     public void openMainMenu(Player viewer, String targetName) {
+        LoadingMenuHolder loading = showLoading(viewer, targetName);
+        deliver(viewer, loading, storage.countByType(targetName), counts -> {
+            if (counts.isEmpty()) {
+                abandon(viewer, loading);
+                messageService.send(viewer, "command.restore.no-record-any", Map.of("player", targetName));
+                return;
+            }
+            showMainMenu(viewer, targetName, counts);
+        });
+    }
+
+    private void showMainMenu(Player viewer, String targetName, Map<InventoryRecordType, Integer> counts) {
         String title = messageService.formatMessage("inventory.restore.main.title", Map.of("player", targetName), false);
         RestoreMainHolder holder = new RestoreMainHolder(mainMenuSize, title, targetName);
         Inventory inventory = holder.getInventory();
@@ -124,112 +138,157 @@ public final class RestoreMenuManager implements Listener {
         inventory.setItem(mainDeathItem.slot(), buildMenuItem(
                 mainDeathItem.material(),
                 messageService.formatMessage("inventory.restore.main.items.death.name", Map.of(), false),
-                messageService.formatList("inventory.restore.main.items.death.lore", Map.of(), false)
+                messageService.formatList("inventory.restore.main.items.death.lore", countPlaceholders(counts, InventoryRecordType.DEATH), false)
         ));
 
         inventory.setItem(mainWorldItem.slot(), buildMenuItem(
                 mainWorldItem.material(),
                 messageService.formatMessage("inventory.restore.main.items.world.name", Map.of(), false),
-                messageService.formatList("inventory.restore.main.items.world.lore", Map.of(), false)
+                messageService.formatList("inventory.restore.main.items.world.lore", countPlaceholders(counts, InventoryRecordType.WORLD), false)
         ));
 
         inventory.setItem(mainTeleportItem.slot(), buildMenuItem(
                 mainTeleportItem.material(),
                 messageService.formatMessage("inventory.restore.main.items.teleport.name", Map.of(), false),
-                messageService.formatList("inventory.restore.main.items.teleport.lore", Map.of(), false)
+                messageService.formatList("inventory.restore.main.items.teleport.lore", countPlaceholders(counts, InventoryRecordType.TELEPORT), false)
         ));
 
         inventory.setItem(mainConnectionItem.slot(), buildMenuItem(
                 mainConnectionItem.material(),
                 messageService.formatMessage("inventory.restore.main.items.connection.name", Map.of(), false),
-                messageService.formatList("inventory.restore.main.items.connection.lore", Map.of(), false)
+                messageService.formatList("inventory.restore.main.items.connection.lore", countPlaceholders(counts, InventoryRecordType.CONNECTION), false)
         ));
 
         inventory.setItem(mainDisconnectionItem.slot(), buildMenuItem(
                 mainDisconnectionItem.material(),
                 messageService.formatMessage("inventory.restore.main.items.disconnection.name", Map.of(), false),
-                messageService.formatList("inventory.restore.main.items.disconnection.lore", Map.of(), false)
+                messageService.formatList("inventory.restore.main.items.disconnection.lore", countPlaceholders(counts, InventoryRecordType.DISCONNECTION), false)
+        ));
+
+        int totalRecords = counts.values().stream().mapToInt(Integer::intValue).sum();
+        inventory.setItem(mainTimelineItem.slot(), buildMenuItem(
+                mainTimelineItem.material(),
+                messageService.formatMessage("inventory.restore.main.items.timeline.name", Map.of(), false),
+                messageService.formatList("inventory.restore.main.items.timeline.lore", Map.of("count", String.valueOf(totalRecords)), false)
         ));
 
         viewer.openInventory(inventory);
     }
 
-    public void openRecordListMenu(Player viewer, String targetName, InventoryRecordType type, int page) {
+    public void openRecordListMenu(Player viewer, String targetName, InventoryRecordType type, RecordListCursor cursor) {
         int itemsPerPage = listSlots.size();
         if (itemsPerPage <= 0) {
             messageService.send(viewer, "inventory.restore.main.unavailable", Map.of(), true);
             return;
         }
 
-        int totalRecords = countRecords(targetName, type);
-        if (totalRecords <= 0) {
-            messageService.send(viewer, type.listMessageKey("empty"), Map.of("player", targetName), true);
-            return;
-        }
+        CompletableFuture<Integer> count = type == null ? storage.countTimeline(targetName) : storage.countRecords(type, targetName);
+        CompletableFuture<RecordPage> page = count.thenCompose(totalRecords -> {
+            if (totalRecords <= 0) {
+                return CompletableFuture.completedFuture(new RecordPage(cursor, List.of(), 0, List.of()));
+            }
+            int totalPages = Math.max(1, (int) Math.ceil(totalRecords / (double) itemsPerPage));
+            RecordListCursor currentCursor = cursor;
+            while (currentCursor.page() > totalPages - 1) {
+                currentCursor = currentCursor.previous();
+            }
+            return loadPage(targetName, type, itemsPerPage, currentCursor, totalPages);
+        });
+
+        CompletableFuture<RecordPage> rendered = storage.render(page, "render " + listKey(type) + " record icons for " + targetName,
+                loaded -> loaded.withIcons(loaded.records().stream().map(this::buildRecordItem).toList()));
+
+        LoadingMenuHolder loading = showLoading(viewer, targetName);
+        deliver(viewer, loading, rendered, loaded -> {
+            if (loaded.records().isEmpty()) {
+                abandon(viewer, loading);
+                messageService.send(viewer, listMessageKey(type, "empty"), Map.of("player", targetName), true);
+                return;
+            }
+            showRecordListMenu(viewer, targetName, type, loaded);
+        });
+    }
 
-        int totalPages = Math.max(1, (int) Math.ceil(totalRecords / (double) itemsPerPage));
-        int currentPage = Math.max(0, Math.min(page, totalPages - 1));
-        int offset = currentPage * itemsPerPage;
-        List<? extends StoredInventoryRecord> records = fetchRecords(targetName, type, itemsPerPage, offset);
+    private CompletableFuture<RecordPage> loadPage(String targetName, InventoryRecordType type, int limit, RecordListCursor cursor, int totalPages) {
+        CompletableFuture<List<StoredInventoryRecord>> records = type == null
+                ? storage.findTimeline(targetName, limit, cursor.beforeId())
+                : storage.findRecords(type, targetName, limit, cursor.beforeId());
+        return records.thenCompose(loaded -> {
+            if (loaded.isEmpty() && cursor.page() > 0) {
+                return loadPage(targetName, type, limit, cursor.previous(), totalPages);
+            }
+            return CompletableFuture.completedFuture(new RecordPage(cursor, loaded, totalPages, List.of()));
+        });
+    }
 
-        String title = messageService.formatMessage(type.listMessageKey("title"), Map.of("player", targetName), false);
-        RecordListHolder holder = new RecordListHolder(listMenuSize, title, type, targetName, currentPage);
+    private void showRecordListMenu(Player viewer, String targetName, InventoryRecordType type, RecordPage page) {
+        int itemsPerPage = listSlots.size();
+        List<StoredInventoryRecord> records = page.records();
+        List<ItemStack> icons = page.icons();
+        RecordListCursor currentCursor = page.cursor();
+        int totalPages = page.totalPages();
+
+        String title = messageService.formatMessage(listMessageKey(type, "title"), Map.of("player", targetName), false);
+        long lastRecordId = records.get(records.size() - 1).id();
+        RecordListHolder holder = new RecordListHolder(listMenuSize, title, type, targetName, currentCursor, lastRecordId);
         Inventory inventory = holder.getInventory();
 
-        int startIndex = currentPage * itemsPerPage;
-        for (int slotIndex = 0; slotIndex < itemsPerPage; slotIndex++) {
-            int recordIndex = startIndex + slotIndex;
-            if (recordIndex >= records.size()) {
-                break;
-            }
-
+        for (int slotIndex = 0; slotIndex < itemsPerPage && slotIndex < records.size(); slotIndex++) {
             int slot = listSlots.get(slotIndex);
             if (slot < 0 || slot >= listMenuSize) {
                 continue;
             }
 
-            StoredInventoryRecord record = records.get(recordIndex);
-            ItemStack item = buildRecordItem(record, type);
-            inventory.setItem(slot, item);
+            inventory.setItem(slot, icons.get(slotIndex));
         }
 
-        if (currentPage > 0) {
+        if (currentCursor.page() > 0) {
             inventory.setItem(previousPageItem.slot(), buildNavigationItem(previousPageItem, "previous"));
         }
-        if (currentPage < totalPages - 1) {
+        if (currentCursor.page() < totalPages - 1) {
             inventory.setItem(nextPageItem.slot(), buildNavigationItem(nextPageItem, "next"));
         }
 
         viewer.openInventory(inventory);
     }
 
-    public void openRecordDetailMenu(Player viewer, InventoryRecordType type, long recordId, String targetName, int page) {
-        Optional<? extends StoredInventoryRecord> optionalRecord = findRecordById(type, recordId);
-        if (optionalRecord.isEmpty()) {
-            messageService.send(viewer, type.detailMessageKey("missing"), Map.of("player", targetName), true);
-            openRecordListMenu(viewer, targetName, type, Math.max(0, page));
-            return;
-        }
+    public void openRecordDetailMenu(Player viewer, InventoryRecordType type, long recordId, String targetName, RecordListCursor cursor, InventoryRecordType listType) {
+        LoadingMenuHolder loading = showLoading(viewer, targetName);
+        deliver(viewer, loading, loadDecodedRecord(type, recordId), optionalRecord -> {
+            if (optionalRecord.isEmpty()) {
+                messageService.send(viewer, type.detailMessageKey("missing"), Map.of("player", targetName), true);
+                openRecordListMenu(viewer, targetName, listType, cursor);
+                return;
+            }
 
-        StoredInventoryRecord record = optionalRecord.get();
-        Optional<SerializedInventory> serialized = deserializeInventory(record.inventory());
-        if (serialized.isEmpty()) {
-            messageService.send(viewer, type.detailMessageKey("invalid"), Map.of("player", record.nickname()), true);
-            return;
-        }
+            DecodedRecord loaded = optionalRecord.get();
+            if (loaded.inventory().isEmpty()) {
+                abandon(viewer, loading);
+                messageService.send(viewer, type.detailMessageKey("invalid"), Map.of("player", loaded.record().nickname()), true);
+                return;
+            }
+            showRecordDetailMenu(viewer, type, loaded.record(), loaded.inventory().get(), cursor, listType);
+        });
+    }
+
+    private void showRecordDetailMenu(Player viewer,
+                                      InventoryRecordType type,
+                                      StoredInventoryRecord record,
+                                      SerializedInventory stored,
+                                      RecordListCursor cursor,
+                                      InventoryRecordType listType) {
 
         Map<String, String> titlePlaceholders = Map.of(
                 "player", record.nickname(),
                 "timestamp", record.timestamp()
         );
         String title = messageService.formatMessage(type.detailMessageKey("title"), titlePlaceholders, false);
-        RecordDetailHolder holder = new RecordDetailHolder(detailMenuSize, title, type, record.id(), record.nickname(), page);
+        RecordDetailHolder holder = new RecordDetailHolder(detailMenuSize, title, type, record.id(), record.nickname(), cursor, listType);
         Inventory inventory = holder.getInventory();
 
-        SerializedInventory stored = serialized.get();
-        fillContents(inventory, stored.contents());
-        fillArmor(inventory, stored.armor());
-        fillOffhand(inventory, stored.extra());
+        fillContents(inventory, stored);
+        fillArmor(inventory, stored);
+        fillOffhand(inventory, stored);
 
         inventory.setItem(restoreActionItem.slot(), buildMenuItem(
                 restoreActionItem.material(),
@@ -284,23 +343,27 @@ public final class RestoreMenuManager implements Listener {
 
     private void handleMainMenuClick(Player player, RestoreMainHolder holder, int slot) {
         if (slot == mainDeathItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.DEATH, 0);
+            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.DEATH, RecordListCursor.first());
             return;
         }
         if (slot == mainWorldItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.WORLD, 0);
+            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.WORLD, RecordListCursor.first());
             return;
         }
         if (slot == mainTeleportItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.TELEPORT, 0);
+            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.TELEPORT, RecordListCursor.first());
             return;
         }
         if (slot == mainConnectionItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.CONNECTION, 0);
+            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.CONNECTION, RecordListCursor.first());
             return;
         }
         if (slot == mainDisconnectionItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.DISCONNECTION, 0);
+            openRecordListMenu(player, holder.getTargetName(), InventoryRecordType.DISCONNECTION, RecordListCursor.first());
+            return;
+        }
+        if (slot == mainTimelineItem.slot()) {
+            openRecordListMenu(player, holder.getTargetName(), null, RecordListCursor.first());
             return;
         }
 
@@ -309,11 +372,11 @@ public final class RestoreMenuManager implements Listener {
 
     private void handleRecordListClick(Player player, RecordListHolder holder, int slot, ItemStack clicked) {
         if (slot == previousPageItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), holder.getType(), Math.max(0, holder.getPage() - 1));
+            openRecordListMenu(player, holder.getTargetName(), holder.getType(), holder.getCursor().previous());
             return;
         }
         if (slot == nextPageItem.slot()) {
-            openRecordListMenu(player, holder.getTargetName(), holder.getType(), holder.getPage() + 1);
+            openRecordListMenu(player, holder.getTargetName(), holder.getType(), holder.getCursor().next(holder.getLastRecordId()));
             return;
         }
 
@@ -332,7 +395,13 @@ public final class RestoreMenuManager implements Listener {
             return;
         }
 
-        openRecordDetailMenu(player, holder.getType(), recordId, holder.getTargetName(), holder.getPage());
+        String typeKey = container.get(recordTypeKey, PersistentDataType.STRING);
+        InventoryRecordType type = typeKey == null ? holder.getType() : InventoryRecordType.fromKey(typeKey);
+        if (type == null) {
+            return;
+        }
+
+        openRecordDetailMenu(player, type, recordId, holder.getTargetName(), holder.getCursor(), holder.getType());
     }
 
     private void handleRecordDetailClick(Player player, RecordDetailHolder holder, int slot) {
@@ -352,18 +421,20 @@ public final class RestoreMenuManager implements Listener {
     }
 
     private void openRestoreActionMenu(Player staff, RecordDetailHolder holder) {
-        Optional<StoredInventoryRecord> optionalRecord = requireAvailableRecord(
-                staff,
-                holder.getType(),
-                holder.getRecordId(),
-                holder.getTargetName(),
-                holder.getPage()
-        );
-        if (optionalRecord.isEmpty()) {
-            return;
-        }
+        LoadingMenuHolder loading = showLoading(staff, holder.getTargetName());
+        deliver(staff, loading, storage.loadRecord(holder.getType(), holder.getRecordId()).thenApply(found -> found.map(DecodedRecord::record)), found -> {
+            Optional<StoredInventoryRecord> record = requireAvailableRecord(staff, found, holder.getType(), holder.getTargetName(), holder.getCursor(), holder.getListType());
+            if (record.isEmpty()) {
+                if (found.isPresent()) {
+                    abandon(staff, loading);
+                }
+                return;
+            }
+            showRestoreActionMenu(staff, holder, record.get());
+        });
+    }
 
-        StoredInventoryRecord record = optionalRecord.get();
+    private void showRestoreActionMenu(Player staff, RecordDetailHolder holder, StoredInventoryRecord record) {
         Map<String, String> placeholders = Map.of("player", record.nickname());
         String title = messageService.formatMessage("inventory.restore.actions.title", placeholders, false);
 
@@ -373,7 +444,8 @@ public final class RestoreMenuManager implements Listener {
                 holder.getType(),
                 record.id(),
                 record.nickname(),
-                holder.getPage()
+                holder.getCursor(),
+                holder.getListType()
         );
 
         Inventory inventory = actionHolder.getInventory();
@@ -392,81 +464,116 @@ public final class RestoreMenuManager implements Listener {
     }
 
     private void executeDirectRestore(Player staff, RestoreActionHolder holder) {
-        Optional<RestorationContext> optionalContext = prepareRestoration(
-                staff,
-                holder.getType(),
-                holder.getRecordId(),
-                holder.getTargetName(),
-                holder.getPage()
-        );
-        if (optionalContext.isEmpty()) {
-            return;
-        }
+        restore(staff, holder, context -> {
+            List<ItemStack> leftovers = InventorySerializer.restoreInventory(context.target(), context.serialized());
+            if (!leftovers.isEmpty()) {
+                leftovers.forEach(item -> context.target().getWorld().dropItemNaturally(context.target().getLocation(), item));
+            }
+            return true;
+        });
+    }
 
-        RestorationContext context = optionalContext.get();
-        List<ItemStack> leftovers = InventorySerializer.restoreInventory(context.target(), context.serialized());
-        if (!leftovers.isEmpty()) {
-            leftovers.forEach(item -> context.target().getWorld().dropItemNaturally(context.target().getLocation(), item));
-        }
+    private void executeShulkerRestore(Player staff, RestoreActionHolder holder) {
+        restore(staff, holder, context -> {
+            List<ItemStack> items = InventorySerializer.collectItems(context.serialized());
+            ItemStack shulker;
+            try {
+                shulker = InventorySerializer.createShulkerWithContents(items);
+            } catch (IllegalStateException exception) {
+                messageService.send(staff, "inventory.restore.actions.shulker-overflow", Map.of("player", context.record().nickname()), true);
+                return false;
+            }
 
-        finalizeRestoration(staff, holder.getType(), context, holder.getPage());
+            Map<Integer, ItemStack> leftovers = context.target().getInventory().addItem(shulker);
+            if (!leftovers.isEmpty()) {
+                leftovers.values().forEach(item -> context.target().getWorld().dropItemNaturally(context.target().getLocation(), item));
+            }
+            return true;
+        });
     }
 
-    private void executeShulkerRestore(Player staff, RestoreActionHolder holder) {
-        Optional<RestorationContext> optionalContext = prepareRestoration(
-                staff,
-                holder.getType(),
-                holder.getRecordId(),
-                holder.getTargetName(),
-                holder.getPage()
-        );
-        if (optionalContext.isEmpty()) {
+    private void restore(Player staff, RestoreActionHolder holder, RestoreAction action) {
+        UUID staffId = staff.getUniqueId();
+        if (!busyViewers.add(staffId)) {
             return;
         }
 
-        RestorationContext context = optionalContext.get();
-        List<ItemStack> items = InventorySerializer.collectItems(context.serialized());
-        ItemStack shulker;
-        try {
-            shulker = InventorySerializer.createShulkerWithContents(items);
-        } catch (IllegalStateException exception) {
-            messageService.send(staff, "inventory.restore.actions.shulker-overflow", Map.of("player", context.record().nickname()), true);
-            return;
+        InventoryRecordType type = holder.getType();
+        storage.sync(loadDecodedRecord(type, holder.getRecordId()))
+                .thenCompose(found -> {
+                    if (!staff.isOnline()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    Optional<RestorationContext> context = prepareRestoration(staff, found, type, holder.getTargetName(), holder.getCursor(), holder.getListType());
+                    if (context.isEmpty()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    StoredInventoryRecord record = context.get().record();
+                    CompletableFuture<Boolean> claim = record.type().usesReturnedFlag()
+                            ? storage.claimRecord(record.type(), record.id())
+                            : CompletableFuture.completedFuture(true);
+                    return storage.sync(claim).thenCompose(claimed -> applyRestoration(staff, type, context.get(), claimed, holder.getCursor(), holder.getListType(), action));
+                })
+                .whenComplete((ignored, error) -> busyViewers.remove(staffId));
+    }
+
+    private CompletableFuture<Void> applyRestoration(Player staff,
+                                                     InventoryRecordType type,
+                                                     RestorationContext prepared,
+                                                     boolean claimed,
+                                                     RecordListCursor cursor,
+                                                     InventoryRecordType listType,
+                                                     RestoreAction action) {
+        StoredInventoryRecord record = prepared.record();
+        if (!claimed) {
+            if (staff.isOnline()) {
+                messageService.send(staff, type.detailMessageKey("already-returned"), Map.of("player", record.nickname()), true);
+            }
+            return CompletableFuture.completedFuture(null);
         }
 
-        Map<Integer, ItemStack> leftovers = context.target().getInventory().addItem(shulker);
-        if (!leftovers.isEmpty()) {
-            leftovers.values().forEach(item -> context.target().getWorld().dropItemNaturally(context.target().getLocation(), item));
+        Player target = findTarget(record);
+        if (target == null && staff.isOnline()) {
+            messageService.send(staff, type.detailMessageKey("offline"), Map.of("player", record.nickname()), true);
+        }
+        if (target == null || !staff.isOnline() || !action.apply(new RestorationContext(record, prepared.serialized(), target))) {
+            return record.type().usesReturnedFlag()
+                    ? storage.releaseRecord(record.type(), record.id())
+                    : CompletableFuture.completedFuture(null);
         }
 
-        finalizeRestoration(staff, holder.getType(), context, holder.getPage());
+        finalizeRestoration(staff, type, record, target, cursor, listType);
+        return CompletableFuture.completedFuture(null);
     }
 
-    private void finalizeRestoration(Player staff, InventoryRecordType type, RestorationContext context, int page) {
-        markRecordReturned(context.record());
-
+    private void finalizeRestoration(Player staff,
+                                     InventoryRecordType type,
+                                     StoredInventoryRecord record,
+                                     Player target,
+                                     RecordListCursor cursor,
+                                     InventoryRecordType listType) {
         Map<String, String> placeholders = new HashMap<>();
-        placeholders.put("player", context.record().nickname());
+        placeholders.put("player", record.nickname());
         placeholders.put("sender", staff.getName());
 
+        messageService.send(target, "command.restore.notify-player", placeholders);
         messageService.send(staff, type.detailMessageKey("restored"), placeholders, true);
-        messageService.send(context.target(), "command.restore.notify-player", placeholders);
-
-        Bukkit.getScheduler().runTask(plugin, () -> openRecordListMenu(staff, context.record().nickname(), type, page));
+        openRecordListMenu(staff, record.nickname(), listType, cursor);
     }
 
     private Optional<RestorationContext> prepareRestoration(Player staff,
+                                                            Optional<DecodedRecord> found,
                                                             InventoryRecordType type,
-                                                            long recordId,
                                                             String targetName,
-                                                            int page) {
-        Optional<StoredInventoryRecord> optionalRecord = requireAvailableRecord(staff, type, recordId, targetName, page);
+                                                            RecordListCursor cursor,
+                                                            InventoryRecordType listType) {
+        Optional<StoredInventoryRecord> optionalRecord = requireAvailableRecord(staff, found.map(DecodedRecord::record), type, targetName, cursor, listType);
         if (optionalRecord.isEmpty()) {
             return Optional.empty();
         }
 
         StoredInventoryRecord record = optionalRecord.get();
-        Optional<SerializedInventory> serialized = deserializeInventory(record.inventory());
+        Optional<SerializedInventory> serialized = found.get().inventory();
         if (serialized.isEmpty()) {
             messageService.send(staff, type.detailMessageKey("invalid"), Map.of("player", record.nickname()), true);
             return Optional.empty();
@@ -482,14 +589,14 @@ public final class RestoreMenuManager implements Listener {
     }
 
     private Optional<StoredInventoryRecord> requireAvailableRecord(Player staff,
+                                                                   Optional<StoredInventoryRecord> optionalRecord,
                                                                    InventoryRecordType type,
-                                                                   long recordId,
                                                                    String targetName,
-                                                                   int page) {
-        Optional<? extends StoredInventoryRecord> optionalRecord = findRecordById(type, recordId);
+                                                                   RecordListCursor cursor,
+                                                                   InventoryRecordType listType) {
         if (optionalRecord.isEmpty()) {
             messageService.send(staff, type.detailMessageKey("missing"), Map.of("player", targetName), true);
-            openRecordListMenu(staff, targetName, type, Math.max(0, page));
+            openRecordListMenu(staff, targetName, listType, cursor);
             return Optional.empty();
         }
 
@@ -503,63 +610,114 @@ public final class RestoreMenuManager implements Listener {
     }
 
     private void eraseInventory(Player staff, RecordDetailHolder holder) {
-        Optional<? extends StoredInventoryRecord> optionalRecord = findRecordById(holder.getType(), holder.getRecordId());
-        if (optionalRecord.isEmpty()) {
-            messageService.send(staff, holder.getType().detailMessageKey("missing"), Map.of("player", holder.getTargetName()), true);
-            openRecordListMenu(staff, holder.getTargetName(), holder.getType(), holder.getPage());
+        UUID staffId = staff.getUniqueId();
+        if (!busyViewers.add(staffId)) {
             return;
         }
 
-        StoredInventoryRecord record = optionalRecord.get();
-        deleteRecord(holder.getType(), record.id());
-
-        messageService.send(staff, holder.getType().detailMessageKey("erased"), Map.of("player", record.nickname()), true);
-        Bukkit.getScheduler().runTask(plugin, () -> staff.closeInventory());
+        InventoryRecordType type = holder.getType();
+        CompletableFuture<Optional<StoredInventoryRecord>> erased = storage.findRecord(type, holder.getRecordId())
+                .thenCompose(found -> found.isEmpty()
+                        ? CompletableFuture.completedFuture(found)
+                        : storage.deleteRecord(type, found.get().id()).thenApply(ignored -> found));
+
+        storage.sync(erased)
+                .thenAccept(found -> {
+                    if (!staff.isOnline()) {
+                        return;
+                    }
+                    if (found.isEmpty()) {
+                        messageService.send(staff, type.detailMessageKey("missing"), Map.of("player", holder.getTargetName()), true);
+                        openRecordListMenu(staff, holder.getTargetName(), holder.getListType(), holder.getCursor());
+                        return;
+                    }
+                    messageService.send(staff, type.detailMessageKey("erased"), Map.of("player", found.get().nickname()), true);
+                    staff.closeInventory();
+                })
+                .whenComplete((ignored, error) -> busyViewers.remove(staffId));
+    }
+
+    private LoadingMenuHolder showLoading(Player viewer, String targetName) {
+        Inventory current = viewer.getOpenInventory().getTopInventory();
+        Inventory previous = null;
+        if (current.getHolder() instanceof LoadingMenuHolder pendingLoad) {
+            previous = pendingLoad.getPrevious();
+        } else if (current.getHolder() instanceof AbstractRestoreInventoryHolder) {
+            previous = current;
+        }
+
+        String title = messageService.formatMessage("inventory.restore.loading.title", Map.of("player", targetName), false);
+        LoadingMenuHolder holder = new LoadingMenuHolder(loadingMenuSize, title, previous);
+        holder.getInventory().setItem(loadingItem.slot(), buildMenuItem(
+                loadingItem.material(),
+                messageService.formatMessage("inventory.restore.loading.name", Map.of(), false),
+                messageService.formatList("inventory.restore.loading.lore", Map.of(), false)
+        ));
+        viewer.openInventory(holder.getInventory());
+        return holder;
     }
 
-    private List<? extends StoredInventoryRecord> fetchRecords(String nickname, InventoryRecordType type, int limit, int offset) {
-        return switch (type) {
-            case DEATH -> deathRepository.findByNickname(nickname, limit, offset);
-            case WORLD -> worldRepository.findByNickname(nickname, limit, offset);
-            case TELEPORT -> teleportRepository.findByNickname(nickname, limit, offset);
-            case CONNECTION, DISCONNECTION -> snapshotRepository.findByNickname(nickname, type, limit, offset);
-        };
+    private <T> void deliver(Player viewer, LoadingMenuHolder loading, CompletableFuture<T> future, Consumer<T> consumer) {
+        storage.sync(future).whenComplete((result, error) -> {
+            if (!viewer.isOnline() || viewer.getOpenInventory().getTopInventory().getHolder() != loading) {
+                return;
+            }
+            if (error != null) {
+                abandon(viewer, loading);
+                messageService.send(viewer, "inventory.restore.loading.failed", Map.of(), true);
+                return;
+            }
+            consumer.accept(result);
+        });
     }
 
-    private int countRecords(String nickname, InventoryRecordType type) {
-        return switch (type) {
-            case DEATH -> deathRepository.countByNickname(nickname);
-            case WORLD -> worldRepository.countByNickname(nickname);
-            case TELEPORT -> teleportRepository.countByNickname(nickname);
-            case CONNECTION, DISCONNECTION -> snapshotRepository.countByNickname(nickname, type);
-        };
+    private void abandon(Player viewer, LoadingMenuHolder loading) {
+        if (loading.getPrevious() != null) {
+            viewer.openInventory(loading.getPrevious());
+        } else {
+            viewer.closeInventory();
+        }
     }
 
-    private Optional<? extends StoredInventoryRecord> findRecordById(InventoryRecordType type, long id) {
-        return switch (type) {
-            case DEATH -> deathRepository.findById(id);
-            case WORLD -> worldRepository.findById(id);
-            case TELEPORT -> teleportRepository.findById(id);
-            case CONNECTION, DISCONNECTION -> snapshotRepository.findById(id, type);
-        };
+    private CompletableFuture<Optional<DecodedRecord>> loadDecodedRecord(InventoryRecordType type, long recordId) {
+        return storage.render(storage.loadRecord(type, recordId), "decode " + type.key() + " record " + recordId,
+                found -> found.map(RestoreMenuManager::decodeFully));
     }
 
-    private void deleteRecord(InventoryRecordType type, long id) {
-        switch (type) {
-            case DEATH -> deathRepository.delete(id);
-            case WORLD -> worldRepository.delete(id);
-            case TELEPORT -> teleportRepository.delete(id);
-            case CONNECTION, DISCONNECTION -> snapshotRepository.delete(id, type);
+    private static DecodedRecord decodeFully(DecodedRecord decoded) {
+        if (decoded.inventory().isEmpty()) {
+            return decoded;
+        }
+        try {
+            decoded.inventory().get().decodeAll();
+            return decoded;
+        } catch (IllegalStateException exception) {
+            return new DecodedRecord(decoded.record(), Optional.empty());
         }
     }
 
-    private ItemStack buildRecordItem(StoredInventoryRecord record, InventoryRecordType type) {
-        Optional<SerializedInventory> serialized = deserializeInventory(record.inventory());
+    private static String listKey(InventoryRecordType type) {
+        return type == null ? "timeline" : type.key();
+    }
+
+    private static String listMessageKey(InventoryRecordType type, String path) {
+        return type == null ? "inventory.restore.list.timeline." + path : type.listMessageKey(path);
+    }
+
+    private static Map<String, String> countPlaceholders(Map<InventoryRecordType, Integer> counts, InventoryRecordType type) {
+        return Map.of("count", String.valueOf(counts.getOrDefault(type, 0)));
+    }
+
+    private ItemStack buildRecordItem(StoredInventoryRecord record) {
+        InventoryRecordType type = record.type();
+        InventorySummary summary = record.summary();
 
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("timestamp", record.timestamp());
         placeholders.put("user", record.nickname());
-        placeholders.put("items", Integer.toString(serialized.map(InventorySerializer::countItems).orElse(0)));
+        placeholders.put("items", summary == null ? "?" : Integer.toString(summary.itemCount()));
+        placeholders.put("slots", summary == null ? "?" : Integer.toString(summary.slotCount()));
+        placeholders.put("materials", summary == null ? "?" : summary.describeMaterials());
 
         if (record instanceof StoredDeathInventory deathRecord) {
             placeholders.put("death", deathRecord.deathType());
@@ -593,6 +751,7 @@ public final class RestoreMenuManager implements Listener {
                 meta.setLore(lore);
             }
             meta.getPersistentDataContainer().set(recordIdKey, PersistentDataType.LONG, record.id());
+            meta.getPersistentDataContainer().set(recordTypeKey, PersistentDataType.STRING, type.key());
             item.setItemMeta(meta);
         }
         return item;
@@ -612,14 +771,6 @@ public final class RestoreMenuManager implements Listener {
         return navigation;
     }
 
-    private Optional<SerializedInventory> deserializeInventory(String serialized) {
-        try {
-            return Optional.of(InventorySerializer.deserialize(serialized));
-        } catch (IllegalStateException | IllegalArgumentException exception) {
-            return Optional.empty();
-        }
-    }
-
     private Player findTarget(StoredInventoryRecord record) {
         try {
             UUID uuid = UUID.fromString(record.uuid());
@@ -633,15 +784,6 @@ public final class RestoreMenuManager implements Listener {
         return Bukkit.getPlayerExact(record.nickname());
     }
 
-    private void markRecordReturned(StoredInventoryRecord record) {
-        switch (record.type()) {
-            case DEATH -> deathRepository.markInventoryReturned(record.id());
-            case WORLD -> worldRepository.markInventoryReturned(record.id());
-            case TELEPORT -> teleportRepository.markInventoryReturned(record.id());
-            case CONNECTION, DISCONNECTION -> snapshotRepository.markInventoryReturned(record.id(), record.type());
-        }
-    }
-
     private void applyStatusPlaceholders(Map<String, String> placeholders, InventoryRecordType type, boolean returned) {
         String returnedStatus = layoutService.format(type.key() + ".status.returned", Collections.emptyMap());
         String pendingStatus = layoutService.format(type.key() + ".status.without-returning", Collections.emptyMap());
@@ -663,48 +805,47 @@ public final class RestoreMenuManager implements Listener {
         return item;
     }
 
-    private void fillContents(Inventory inventory, ItemStack[] contents) {
-        int limit = Math.min(contents.length, contentSlots.size());
+    private void fillContents(Inventory inventory, SerializedInventory stored) {
+        int limit = Math.min(stored.size(SlotTable.CONTENTS), contentSlots.size());
         for (int i = 0; i < limit; i++) {
-            ItemStack item = contents[i];
-            if (item == null || item.getType().isAir()) {
-                continue;
-            }
             int slot = contentSlots.get(i);
             if (slot >= 0 && slot < inventory.getSize()) {
-                inventory.setItem(slot, item.clone());
+                setStoredItem(inventory, slot, stored.item(SlotTable.CONTENTS, i));
             }
         }
     }
 
-    private void fillArmor(Inventory inventory, ItemStack[] armor) {
-        if (armor.length > 0 && armor[0] != null && !armor[0].getType().isAir()) {
-            inventory.setItem(bootsSlot, armor[0].clone());
-        }
-        if (armor.length > 1 && armor[1] != null && !armor[1].getType().isAir()) {
-            inventory.setItem(leggingsSlot, armor[1].clone());
-        }
-        if (armor.length > 2 && armor[2] != null && !armor[2].getType().isAir()) {
-            inventory.setItem(chestplateSlot, armor[2].clone());
-        }
-        if (armor.length > 3 && armor[3] != null && !armor[3].getType().isAir()) {
-            inventory.setItem(helmetSlot, armor[3].clone());
-        }
+    private void fillArmor(Inventory inventory, SerializedInventory stored) {
+        setStoredItem(inventory, bootsSlot, stored.item(SlotTable.ARMOR, 0));
+        setStoredItem(inventory, leggingsSlot, stored.item(SlotTable.ARMOR, 1));
+        setStoredItem(inventory, chestplateSlot, stored.item(SlotTable.ARMOR, 2));
+        setStoredItem(inventory, helmetSlot, stored.item(SlotTable.ARMOR, 3));
     }
 
-    private void fillOffhand(Inventory inventory, ItemStack[] extra) {
-        if (extra.length == 0) {
-            return;
-        }
+    private void fillOffhand(Inventory inventory, SerializedInventory stored) {
+        setStoredItem(inventory, offhandSlot, stored.item(SlotTable.EXTRA, 0));
+    }
 
-        ItemStack offhand = extra[0];
-        if (offhand == null || offhand.getType().isAir()) {
+    private void setStoredItem(Inventory inventory, int slot, ItemStack item) {
+        if (item == null || item.getType().isAir()) {
             return;
         }
-
-        inventory.setItem(offhandSlot, offhand.clone());
+        inventory.setItem(slot, item.clone());
     }
 
     private record RestorationContext(StoredInventoryRecord record, SerializedInventory serialized, Player target) {
     }
+
+
+    private record RecordPage(RecordListCursor cursor, List<StoredInventoryRecord> records, int totalPages, List<ItemStack> icons) {
+
+        private RecordPage withIcons(List<ItemStack> rendered) {
+            return new RecordPage(cursor, records, totalPages, rendered);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RestoreAction {
+        boolean apply(RestorationContext context);
+    }
 }
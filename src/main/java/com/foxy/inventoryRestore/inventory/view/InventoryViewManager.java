@@ -1,10 +1,8 @@
 package com.foxy.inventoryRestore.inventory.view;
 
 import com.foxy.inventoryRestore.InventoryRestore;
-import com.foxy.inventoryRestore.database.PendingInventoryRepository;
-import com.foxy.inventoryRestore.database.PlayerSnapshotRepository;
+import com.foxy.inventoryRestore.database.InventoryStorage;
 import com.foxy.inventoryRestore.database.record.StoredPendingInventory;
-import com.foxy.inventoryRestore.database.record.StoredPlayerInventory;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
@@ -29,6 +27,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public final class InventoryViewManager implements Listener {
 
@@ -36,8 +35,7 @@ public final class InventoryViewManager implements Listener {
 
     private final InventoryRestore plugin;
     private final MessageService messageService;
-    private final PlayerSnapshotRepository snapshotRepository;
-    private final PendingInventoryRepository pendingRepository;
+    private final InventoryStorage storage;
     private final int inventorySize;
     private final List<Integer> contentSlots;
     private final int offhandSlot;
@@ -51,12 +49,10 @@ public final class InventoryViewManager implements Listener {
     public InventoryViewManager(InventoryRestore plugin,
                                 MessageService messageService,
                                 MenuConfiguration menuConfiguration,
-                                PlayerSnapshotRepository snapshotRepository,
-                                PendingInventoryRepository pendingRepository) {
+                                InventoryStorage storage) {
         this.plugin = plugin;
         this.messageService = messageService;
-        this.snapshotRepository = snapshotRepository;
-        this.pendingRepository = pendingRepository;
+        this.storage = storage;
         this.inventorySize = menuConfiguration.getDeathDetailSize();
         this.contentSlots = menuConfiguration.getContentSlots();
         this.offhandSlot = menuConfiguration.getEquipmentSlot("offhand", 47);
@@ -73,25 +69,32 @@ public final class InventoryViewManager implements Listener {
             return;
         }
 
-        Optional<StoredPendingInventory> pending = pendingRepository.findByNickname(targetName);
-        if (pending.isPresent()) {
-            openOfflineInventory(viewer, pending.get(), canModify);
-            return;
-        }
-
-        Optional<StoredPlayerInventory> disconnection = snapshotRepository.findLatest(targetName, InventoryRecordType.DISCONNECTION);
-        if (disconnection.isPresent()) {
-            openOfflineInventory(viewer, disconnection.get(), canModify);
-            return;
-        }
+        storage.sync(findOfflineInventory(targetName)).thenAccept(found -> {
+            if (!viewer.isOnline()) {
+                return;
+            }
+            if (found.isEmpty()) {
+                messageService.send(viewer, "command.view.not-found", Map.of("player", targetName));
+                return;
+            }
+            openOfflineInventory(viewer, found.get(), canModify);
+        });
+    }
 
-        Optional<StoredPlayerInventory> connection = snapshotRepository.findLatest(targetName, InventoryRecordType.CONNECTION);
-        if (connection.isPresent()) {
-            openOfflineInventory(viewer, connection.get(), canModify);
-            return;
-        }
+    private CompletableFuture<Optional<StoredPendingInventory>> findOfflineInventory(String targetName) {
+        return storage.findPendingInventory(null, targetName).thenCompose(pending -> {
+            if (pending.isPresent()) {
+                return CompletableFuture.completedFuture(pending);
+            }
+            return findLatestSnapshot(targetName, InventoryRecordType.DISCONNECTION).thenCompose(disconnection -> disconnection.isPresent()
+                    ? CompletableFuture.completedFuture(disconnection)
+                    : findLatestSnapshot(targetName, InventoryRecordType.CONNECTION));
+        });
+    }
 
-        messageService.send(viewer, "command.view.not-found", Map.of("player", targetName));
+    private CompletableFuture<Optional<StoredPendingInventory>> findLatestSnapshot(String targetName, InventoryRecordType type) {
+        return storage.findLatestSnapshot(targetName, type)
+                .thenApply(snapshot -> snapshot.map(record -> new StoredPendingInventory(record.uuid(), record.nickname(), record.inventory())));
     }
 
     @EventHandler
@@ -196,19 +199,6 @@ public final class InventoryViewManager implements Listener {
         viewer.openInventory(session.holder.getInventory());
     }
 
-    private void openOfflineInventory(Player viewer, StoredPlayerInventory record, boolean canModify) {
-        SerializedInventory inventory = deserialize(record.inventory());
-        if (inventory == null) {
-            messageService.send(viewer, "command.view.invalid", Map.of("player", record.nickname()));
-            return;
-        }
-
-        ViewSession session = createSession(viewer, parseUuid(record.uuid()), record.nickname(), canModify, false);
-        session.offlineInventory = inventory;
-        renderInventory(session.holder.getInventory(), inventory);
-        viewer.openInventory(session.holder.getInventory());
-    }
-
     private ViewSession createSession(Player viewer, UUID targetUuid, String targetName, boolean canModify, boolean online) {
         endSession(viewer.getUniqueId(), true);
 
@@ -275,8 +265,8 @@ public final class InventoryViewManager implements Listener {
         SerializedInventory captured = captureFromView(session.holder.getInventory());
         session.offlineInventory = captured;
         if (session.targetUuid != null) {
-            String serialized = InventorySerializer.serialize(captured);
-            pendingRepository.save(session.targetUuid.toString(), session.targetName, serialized);
+            byte[] serialized = InventorySerializer.serialize(captured);
+            storage.savePendingInventory(session.targetUuid.toString(), session.targetName, serialized);
         }
     }
 
@@ -466,7 +456,7 @@ public final class InventoryViewManager implements Listener {
         view.setItem(slot, cloneItem(item));
     }
 
-    private SerializedInventory deserialize(String serialized) {
+    private SerializedInventory deserialize(byte[] serialized) {
         try {
             return InventorySerializer.deserialize(serialized);
         } catch (IllegalArgumentException | IllegalStateException ignored) {
@@ -528,8 +518,8 @@ public final class InventoryViewManager implements Listener {
             session.updateTask = null;
         }
         if (!session.online && session.offlineInventory != null && session.targetUuid != null) {
-            String serialized = InventorySerializer.serialize(session.offlineInventory);
-            pendingRepository.save(session.targetUuid.toString(), session.targetName, serialized);
+            byte[] serialized = InventorySerializer.serialize(session.offlineInventory);
+            storage.savePendingInventory(session.targetUuid.toString(), session.targetName, serialized);
         }
         if (!silent) {
             Player viewer = Bukkit.getPlayer(viewerId);
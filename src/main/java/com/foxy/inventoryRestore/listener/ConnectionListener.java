@@ -1,8 +1,10 @@
 package com.foxy.inventoryRestore.listener;
 
-import com.foxy.inventoryRestore.database.PendingInventoryRepository;
+import com.foxy.inventoryRestore.database.InventoryStorage;
 import com.foxy.inventoryRestore.database.PlayerSnapshotRepository;
+import com.foxy.inventoryRestore.database.SnapshotPayload;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
 import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.database.record.StoredPendingInventory;
@@ -13,8 +15,11 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 
@@ -22,28 +27,63 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
-import java.util.logging.Level;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
 
 public final class ConnectionListener implements Listener {
 
     private final PlayerSnapshotRepository repository;
-    private final PendingInventoryRepository pendingRepository;
+    private final InventoryStorage storage;
     private final AsyncTaskQueue taskQueue;
+    private final SnapshotFingerprints fingerprints;
+    private final Map<UUID, StoredPendingInventory> pendingLogins = new ConcurrentHashMap<>();
 
     public ConnectionListener(PlayerSnapshotRepository repository,
-                              PendingInventoryRepository pendingRepository,
-                              AsyncTaskQueue taskQueue) {
+                              InventoryStorage storage,
+                              AsyncTaskQueue taskQueue,
+                              SnapshotFingerprints fingerprints) {
         this.repository = repository;
-        this.pendingRepository = pendingRepository;
+        this.storage = storage;
         this.taskQueue = taskQueue;
+        this.fingerprints = fingerprints;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        try {
+            storage.findPendingInventory(event.getUniqueId().toString(), event.getName())
+                    .join()
+                    .ifPresent(stored -> pendingLogins.put(event.getUniqueId(), stored));
+        } catch (CompletionException | CancellationException | RejectedExecutionException exception) {
+            Bukkit.getLogger().log(Level.SEVERE,
+                    "Failed to load pending inventory for " + event.getName() + " (" + event.getUniqueId() + ")",
+                    exception);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            pendingLogins.remove(event.getPlayer().getUniqueId());
+        }
     }
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        applyPendingInventory(event.getPlayer());
-        saveSnapshot(event.getPlayer(), InventoryRecordType.CONNECTION);
+        Player player = event.getPlayer();
+        StoredPendingInventory stored = pendingLogins.remove(player.getUniqueId());
+        if (stored != null) {
+            applyPendingInventory(player, stored);
+        }
+        saveSnapshot(player, InventoryRecordType.CONNECTION);
     }
 
     @EventHandler
@@ -64,24 +104,13 @@ public final class ConnectionListener implements Listener {
         String coords = LocationFormats.coordinates(location);
         String world = LocationFormats.worldName(location);
 
-        taskQueue.execute(type.name().toLowerCase(Locale.ENGLISH) + " snapshot for " + nickname, () -> {
-            String serializedInventory = InventorySerializer.serialize(snapshot);
-            repository.save(type, timestamp, uuid, nickname, serializedInventory, coords, world);
+        taskQueue.execute(type.name().toLowerCase(Locale.ENGLISH) + " snapshot for " + nickname, AsyncTaskQueue.Lane.WRITE, AsyncTaskQueue.Priority.HIGH, () -> {
+            SnapshotPayload payload = fingerprints.payload(type, uuid, snapshot);
+            repository.save(type, timestamp, uuid, nickname, payload, coords, world, InventorySummary.of(snapshot));
         });
     }
 
-    private void applyPendingInventory(Player player) {
-        String uuid = player.getUniqueId().toString();
-        Optional<StoredPendingInventory> pending = pendingRepository.findByUuid(uuid);
-        if (pending.isEmpty()) {
-            pending = pendingRepository.findByNickname(player.getName());
-        }
-        if (pending.isEmpty()) {
-            return;
-        }
-
-        StoredPendingInventory stored = pending.get();
-
+    private void applyPendingInventory(Player player, StoredPendingInventory stored) {
         SerializedInventory inventory;
         try {
             inventory = InventorySerializer.deserialize(stored.inventory());
@@ -89,7 +118,7 @@ public final class ConnectionListener implements Listener {
             Bukkit.getLogger().log(Level.WARNING,
                     "Failed to deserialize pending inventory for {0} ({1})",
                     new Object[]{stored.nickname(), stored.uuid()});
-            pendingRepository.deleteByUuid(stored.uuid());
+            storage.deletePendingInventory(stored.uuid());
             return;
         }
 
@@ -116,7 +145,7 @@ public final class ConnectionListener implements Listener {
         }
 
         player.updateInventory();
-        pendingRepository.deleteByUuid(stored.uuid());
+        storage.deletePendingInventory(stored.uuid());
     }
 
     private ItemStack[] cloneContents(ItemStack[] source, int length) {
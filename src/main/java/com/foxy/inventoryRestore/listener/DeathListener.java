@@ -3,6 +3,7 @@ package com.foxy.inventoryRestore.listener;
 import com.foxy.inventoryRestore.database.DeathInventoryRepository;
 import com.foxy.inventoryRestore.database.record.DeathRecord;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
 import com.foxy.inventoryRestore.util.AsyncTaskQueue;
 import com.foxy.inventoryRestore.util.DateFormats;
@@ -49,8 +50,8 @@ public final class DeathListener implements Listener {
         String coords = LocationFormats.coordinates(location);
         String world = LocationFormats.worldName(location);
 
-        taskQueue.execute("death record for " + playerName, () -> {
-            String serializedInventory = InventorySerializer.serialize(snapshot);
+        taskQueue.execute("death record for " + playerName, AsyncTaskQueue.Lane.WRITE, () -> {
+            byte[] serializedInventory = InventorySerializer.serialize(snapshot);
             DeathRecord record = new DeathRecord(
                     deathType,
                     deathDate,
@@ -58,7 +59,8 @@ public final class DeathListener implements Listener {
                     playerName,
                     serializedInventory,
                     coords,
-                    world
+                    world,
+                    InventorySummary.of(snapshot)
             );
             repository.save(record);
         });
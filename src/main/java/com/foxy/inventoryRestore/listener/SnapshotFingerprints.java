@@ -0,0 +1,45 @@
+package com.foxy.inventoryRestore.listener;
+
+import com.foxy.inventoryRestore.database.SnapshotPayload;
+import com.foxy.inventoryRestore.inventory.InventoryFingerprint;
+import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class SnapshotFingerprints {
+
+    private final int maxPlayers;
+    private final Map<Key, Long> fingerprints;
+
+    public SnapshotFingerprints(int maxPlayers) {
+        this.maxPlayers = Math.max(0, maxPlayers);
+        this.fingerprints = new LinkedHashMap<>(64, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Long> eldest) {
+                return size() > SnapshotFingerprints.this.maxPlayers;
+            }
+        };
+    }
+
+    public SnapshotPayload payload(InventoryRecordType type, String uuid, SerializedInventory snapshot) {
+        long fingerprint = InventoryFingerprint.of(snapshot);
+        if (record(type, uuid, fingerprint)) {
+            return SnapshotPayload.unchanged(fingerprint, () -> InventorySerializer.serialize(snapshot));
+        }
+        return SnapshotPayload.of(fingerprint, InventorySerializer.serialize(snapshot));
+    }
+
+    private synchronized boolean record(InventoryRecordType type, String uuid, long fingerprint) {
+        if (maxPlayers == 0) {
+            return false;
+        }
+        Long previous = fingerprints.put(new Key(type, uuid), fingerprint);
+        return previous != null && previous == fingerprint;
+    }
+
+    private record Key(InventoryRecordType type, String uuid) {
+    }
+}
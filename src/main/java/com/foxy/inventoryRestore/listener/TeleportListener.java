@@ -1,28 +1,57 @@
 package com.foxy.inventoryRestore.listener;
 
 import com.foxy.inventoryRestore.database.TeleportRepository;
+import com.foxy.inventoryRestore.database.SnapshotPayload;
 import com.foxy.inventoryRestore.database.record.TeleportRecord;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.util.AsyncTaskQueue;
 import com.foxy.inventoryRestore.util.DateFormats;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public final class TeleportListener implements Listener {
 
+    private static final long MILLIS_PER_HOUR = 60L * 60L * 1000L;
+
+    private final Plugin plugin;
     private final TeleportRepository repository;
     private final AsyncTaskQueue taskQueue;
+    private final SnapshotFingerprints fingerprints;
+    private final long coalesceTicks;
+    private final int maxRecordsPerHour;
+    private final Map<UUID, Burst> bursts = new HashMap<>();
+    private final Map<UUID, HourlyCount> hourlyCounts = new HashMap<>();
+    private long lastPruneMillis;
 
-    public TeleportListener(TeleportRepository repository, AsyncTaskQueue taskQueue) {
+    public TeleportListener(Plugin plugin,
+                            TeleportRepository repository,
+                            AsyncTaskQueue taskQueue,
+                            SnapshotFingerprints fingerprints,
+                            int coalesceSeconds,
+                            int maxRecordsPerHour) {
+        this.plugin = plugin;
         this.repository = repository;
         this.taskQueue = taskQueue;
+        this.fingerprints = fingerprints;
+        this.coalesceTicks = Math.max(0, coalesceSeconds) * 20L;
+        this.maxRecordsPerHour = Math.max(0, maxRecordsPerHour);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -42,27 +71,91 @@ public final class TeleportListener implements Listener {
             return;
         }
 
-        SerializedInventory snapshot = InventorySerializer.capture(player.getInventory());
-        String fromLocation = formatLocation(from);
-        String toLocation = formatLocation(to);
-        String timestamp = LocalDateTime.now().format(DateFormats.RECORD_DATE_TIME);
-        String uuid = player.getUniqueId().toString();
-        String nickname = player.getName();
+        UUID playerId = player.getUniqueId();
+        Burst burst = bursts.get(playerId);
+        if (burst != null) {
+            burst.toLocation = formatLocation(to);
+            return;
+        }
+        if (!tryAcquire(playerId)) {
+            return;
+        }
+
+        burst = new Burst(
+                formatLocation(from),
+                formatLocation(to),
+                LocalDateTime.now().format(DateFormats.RECORD_DATE_TIME),
+                playerId.toString(),
+                player.getName(),
+                InventorySerializer.capture(player.getInventory())
+        );
+        if (coalesceTicks == 0L) {
+            save(burst);
+            return;
+        }
+        bursts.put(playerId, burst);
+        burst.task = Bukkit.getScheduler().runTaskLater(plugin, () -> flush(playerId), coalesceTicks);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        flush(event.getPlayer().getUniqueId());
+    }
+
+    public void flushAll() {
+        for (UUID playerId : List.copyOf(bursts.keySet())) {
+            flush(playerId);
+        }
+    }
+
+    private void flush(UUID playerId) {
+        Burst burst = bursts.remove(playerId);
+        if (burst == null) {
+            return;
+        }
+        if (burst.task != null) {
+            burst.task.cancel();
+        }
+        save(burst);
+    }
 
-        taskQueue.execute("teleport record for " + nickname, () -> {
-            String serializedInventory = InventorySerializer.serialize(snapshot);
+    private void save(Burst burst) {
+        taskQueue.execute("teleport record for " + burst.nickname, AsyncTaskQueue.Lane.WRITE, AsyncTaskQueue.Priority.LOW, () -> {
+            SnapshotPayload payload = fingerprints.payload(InventoryRecordType.TELEPORT, burst.uuid, burst.snapshot);
             TeleportRecord record = new TeleportRecord(
-                    fromLocation,
-                    toLocation,
-                    timestamp,
-                    uuid,
-                    nickname,
-                    serializedInventory
+                    burst.fromLocation,
+                    burst.toLocation,
+                    burst.timestamp,
+                    burst.uuid,
+                    burst.nickname,
+                    payload,
+                    InventorySummary.of(burst.snapshot)
             );
             repository.save(record);
         });
     }
 
+    private boolean tryAcquire(UUID playerId) {
+        if (maxRecordsPerHour == 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastPruneMillis >= MILLIS_PER_HOUR) {
+            hourlyCounts.values().removeIf(expired -> now - expired.startedMillis >= MILLIS_PER_HOUR);
+            lastPruneMillis = now;
+        }
+        HourlyCount count = hourlyCounts.get(playerId);
+        if (count == null || now - count.startedMillis >= MILLIS_PER_HOUR) {
+            count = new HourlyCount(now);
+            hourlyCounts.put(playerId, count);
+        }
+        if (count.records >= maxRecordsPerHour) {
+            return false;
+        }
+        count.records++;
+        return true;
+    }
+
     private boolean isSameBlock(Location first, Location second) {
         if (first == null || second == null) {
             return false;
@@ -80,4 +173,34 @@ public final class TeleportListener implements Listener {
         String worldName = location.getWorld() != null ? location.getWorld().getName() : "Unknown";
         return worldName + ": " + location.getBlockX() + ", " + location.getBlockY() + ", " + location.getBlockZ();
     }
+
+    private static final class Burst {
+
+        private final String fromLocation;
+        private final String timestamp;
+        private final String uuid;
+        private final String nickname;
+        private final SerializedInventory snapshot;
+        private String toLocation;
+        private BukkitTask task;
+
+        private Burst(String fromLocation, String toLocation, String timestamp, String uuid, String nickname, SerializedInventory snapshot) {
+            this.fromLocation = fromLocation;
+            this.toLocation = toLocation;
+            this.timestamp = timestamp;
+            this.uuid = uuid;
+            this.nickname = nickname;
+            this.snapshot = snapshot;
+        }
+    }
+
+    private static final class HourlyCount {
+
+        private final long startedMillis;
+        private int records;
+
+        private HourlyCount(long startedMillis) {
+            this.startedMillis = startedMillis;
+        }
+    }
 }
@@ -1,9 +1,12 @@
 package com.foxy.inventoryRestore.listener;
 
 import com.foxy.inventoryRestore.database.WorldChangeRepository;
+import com.foxy.inventoryRestore.database.SnapshotPayload;
 import com.foxy.inventoryRestore.database.record.WorldChangeRecord;
 import com.foxy.inventoryRestore.inventory.InventorySerializer;
+import com.foxy.inventoryRestore.inventory.InventorySummary;
 import com.foxy.inventoryRestore.inventory.SerializedInventory;
+import com.foxy.inventoryRestore.inventory.menu.InventoryRecordType;
 import com.foxy.inventoryRestore.util.AsyncTaskQueue;
 import com.foxy.inventoryRestore.util.DateFormats;
 import org.bukkit.entity.Player;
@@ -17,10 +20,12 @@ public final class WorldChangeListener implements Listener {
 
     private final WorldChangeRepository repository;
     private final AsyncTaskQueue taskQueue;
+    private final SnapshotFingerprints fingerprints;
 
-    public WorldChangeListener(WorldChangeRepository repository, AsyncTaskQueue taskQueue) {
+    public WorldChangeListener(WorldChangeRepository repository, AsyncTaskQueue taskQueue, SnapshotFingerprints fingerprints) {
         this.repository = repository;
         this.taskQueue = taskQueue;
+        this.fingerprints = fingerprints;
     }
 
     @EventHandler
@@ -37,15 +42,16 @@ public final class WorldChangeListener implements Listener {
         String uuid = player.getUniqueId().toString();
         String nickname = player.getName();
 
-        taskQueue.execute("world change record for " + nickname, () -> {
-            String serializedInventory = InventorySerializer.serialize(snapshot);
+        taskQueue.execute("world change record for " + nickname, AsyncTaskQueue.Lane.WRITE, AsyncTaskQueue.Priority.NORMAL, () -> {
+            SnapshotPayload payload = fingerprints.payload(InventoryRecordType.WORLD, uuid, snapshot);
             WorldChangeRecord record = new WorldChangeRecord(
                     fromWorld,
                     toWorld,
                     timestamp,
                     uuid,
                     nickname,
-                    serializedInventory
+                    payload,
+                    InventorySummary.of(snapshot)
             );
             repository.save(record);
         });
@@ -1,56 +1,456 @@
 package com.foxy.inventoryRestore.util;
 
+import com.foxy.inventoryRestore.inventory.CodecBuffers;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public final class AsyncTaskQueue {
 
+    private static final long DROP_WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30L);
+
     private final Logger logger;
-    private final ExecutorService executor;
+    private final Thread worker;
+    private final int capacity;
+    private final int hardCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockNanos;
+    private final long starvationNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Lanes lanes = new Lanes();
+    private final long[] dropped = new long[Priority.values().length];
 
-    public AsyncTaskQueue(Logger logger, String threadName) {
+    private boolean shutdown;
+    private int peakDepth;
+    private long promoted;
+    private long blockedSubmissions;
+    private long blockedNanos;
+    private long lastDropWarning;
+    private long droppedSinceWarning;
+    private long rejected;
+    private long lastRejectWarning;
+    private long rejectedSinceWarning;
+
+    public AsyncTaskQueue(Logger logger,
+                          String threadName,
+                          int capacity,
+                          int hardCapacity,
+                          OverflowPolicy overflowPolicy,
+                          long blockMillis,
+                          long starvationMillis) {
         this.logger = Objects.requireNonNull(logger, "logger");
+        this.capacity = Math.max(0, capacity);
+        this.hardCapacity = hardCapacity <= 0 ? 0 : Math.max(this.capacity, hardCapacity);
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, blockMillis));
+        this.starvationNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, starvationMillis));
         String workerName = (threadName == null || threadName.isBlank())
                 ? "InventoryRestore-Worker"
                 : threadName;
-        ThreadFactory factory = runnable -> {
-            Thread thread = new Thread(runnable, workerName);
-            thread.setDaemon(true);
-            return thread;
-        };
-        this.executor = Executors.newSingleThreadExecutor(factory);
+        this.worker = CodecBuffers.newThread(this::work, workerName);
+        this.worker.setDaemon(true);
+        this.worker.start();
     }
 
     public void execute(String description, Runnable task) {
+        execute(description, Lane.BULK, Priority.ESSENTIAL, task);
+    }
+
+    public void execute(String description, Lane lane, Runnable task) {
+        execute(description, lane, Priority.ESSENTIAL, task);
+    }
+
+    public void execute(String description, Lane lane, Priority priority, Runnable task) {
+        enqueue(new Task(description, lane, priority, task, System.nanoTime()));
+    }
+
+    public <T> CompletableFuture<T> supply(String description, Lane lane, Supplier<T> task) {
         Objects.requireNonNull(task, "task");
-        executor.execute(() -> {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        boolean queued = enqueue(new Task(description, lane, Priority.ESSENTIAL, () -> {
             try {
-                task.run();
-            } catch (Throwable throwable) {
-                if (description == null || description.isBlank()) {
-                    logger.log(Level.SEVERE, "Async task execution failed", throwable);
-                } else {
-                    logger.log(Level.SEVERE, "Async task execution failed: " + description, throwable);
-                }
+                future.complete(task.get());
+            } catch (RuntimeException | Error exception) {
+                future.completeExceptionally(exception);
+                throw exception;
             }
+        }, System.nanoTime()));
+        if (!queued) {
+            future.completeExceptionally(new RejectedExecutionException("Storage queue is full (" + hardCapacity + " tasks)"));
+        }
+        return future;
+    }
+
+    public CompletableFuture<Void> run(String description, Lane lane, Runnable task) {
+        Objects.requireNonNull(task, "task");
+        return supply(description, lane, () -> {
+            task.run();
+            return null;
         });
     }
 
+    private boolean enqueue(Task entry) {
+        Objects.requireNonNull(entry.lane(), "lane");
+        Objects.requireNonNull(entry.priority(), "priority");
+        Objects.requireNonNull(entry.action(), "task");
+        boolean onWorker = Thread.currentThread() == worker;
+        Task victim;
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Storage queue is shut down");
+            }
+            if (isFull() && overflowPolicy == OverflowPolicy.BLOCK && !onWorker && !Bukkit.isPrimaryThread()) {
+                awaitSpace();
+            }
+            if (entry.priority() == Priority.ESSENTIAL && !onWorker && hardCapacity > 0 && lanes.size() >= hardCapacity) {
+                rejected++;
+                victim = entry;
+            } else {
+                victim = isFull() ? selectVictim(entry) : null;
+            }
+            if (victim != entry) {
+                lanes.queue(entry.lane()).addLast(entry);
+                peakDepth = Math.max(peakDepth, lanes.size());
+                notEmpty.signal();
+            }
+            if (victim != null && victim.priority() != Priority.ESSENTIAL) {
+                dropped[victim.priority().ordinal()]++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (victim == null) {
+            return true;
+        }
+        if (victim.priority() == Priority.ESSENTIAL) {
+            warnRejected(victim);
+        } else {
+            warnDropped(victim);
+        }
+        return victim != entry;
+    }
+
+    public Statistics statistics() {
+        lock.lock();
+        try {
+            long droppedTotal = 0L;
+            for (long count : dropped) {
+                droppedTotal += count;
+            }
+            List<LaneStatistics> laneStatistics = new ArrayList<>();
+            for (Lane lane : Lane.values()) {
+                laneStatistics.add(lanes.statistics(lane));
+            }
+            return new Statistics(
+                    lanes.size(),
+                    capacity,
+                    hardCapacity,
+                    peakDepth,
+                    List.copyOf(laneStatistics),
+                    promoted,
+                    TimeUnit.NANOSECONDS.toMillis(starvationNanos),
+                    blockedSubmissions,
+                    blockedNanos / 1_000_000.0D,
+                    droppedTotal,
+                    dropped[Priority.LOW.ordinal()],
+                    dropped[Priority.NORMAL.ordinal()],
+                    dropped[Priority.HIGH.ordinal()],
+                    rejected
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public void shutdown() {
-        executor.shutdown();
+        lock.lock();
         try {
-            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
-                executor.shutdownNow();
+            shutdown = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10L));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            int abandoned;
+            lock.lock();
+            try {
+                abandoned = lanes.size();
+                lanes.clear();
+            } finally {
+                lock.unlock();
+            }
+            worker.interrupt();
+            if (abandoned > 0) {
+                logger.warning("Storage queue shut down with " + abandoned + " tasks still pending.");
+            }
+        }
+    }
+
+    private boolean isFull() {
+        return capacity > 0 && lanes.size() >= capacity;
+    }
+
+    private void awaitSpace() {
+        long started = System.nanoTime();
+        long remaining = blockNanos;
+        try {
+            while (isFull() && !shutdown && remaining > 0L) {
+                remaining = notFull.awaitNanos(remaining);
             }
         } catch (InterruptedException exception) {
             Thread.currentThread().interrupt();
-            executor.shutdownNow();
         }
+        blockedSubmissions++;
+        blockedNanos += System.nanoTime() - started;
     }
-}
 
+    private Task selectVictim(Task incoming) {
+        Task victim = null;
+        for (Lane lane : Lane.values()) {
+            for (Task queued : lanes.queue(lane)) {
+                if (queued.priority().compareTo(incoming.priority()) < 0
+                        && (victim == null || queued.priority().compareTo(victim.priority()) < 0
+                        || queued.priority() == victim.priority() && queued.queuedNanos() < victim.queuedNanos())) {
+                    victim = queued;
+                }
+            }
+        }
+        if (victim != null) {
+            Iterator<Task> iterator = lanes.queue(victim.lane()).iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == victim) {
+                    iterator.remove();
+                    break;
+                }
+            }
+            return victim;
+        }
+        return incoming.priority() == Priority.ESSENTIAL ? null : incoming;
+    }
+
+    private void warnDropped(Task victim) {
+        long now = System.nanoTime();
+        long count;
+        synchronized (dropped) {
+            droppedSinceWarning++;
+            if (lastDropWarning != 0L && now - lastDropWarning < DROP_WARNING_INTERVAL_NANOS) {
+                return;
+            }
+            lastDropWarning = now;
+            count = droppedSinceWarning;
+            droppedSinceWarning = 0L;
+        }
+        logger.warning("Storage queue is full (" + capacity + " tasks), dropped " + count
+                + " low priority tasks, latest: " + describe(victim.description()) + " ("
+                + victim.priority().name().toLowerCase(Locale.ENGLISH) + ").");
+    }
+
+    private void warnRejected(Task task) {
+        long now = System.nanoTime();
+        long count;
+        synchronized (dropped) {
+            rejectedSinceWarning++;
+            if (lastRejectWarning != 0L && now - lastRejectWarning < DROP_WARNING_INTERVAL_NANOS) {
+                return;
+            }
+            lastRejectWarning = now;
+            count = rejectedSinceWarning;
+            rejectedSinceWarning = 0L;
+        }
+        logger.severe("Storage queue reached its hard capacity (" + hardCapacity + " tasks), rejected " + count
+                + " tasks, latest: " + describe(task.description()) + ".");
+    }
+
+    private void work() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while (lanes.size() == 0 && !shutdown) {
+                    notEmpty.await();
+                }
+                task = nextTask(System.nanoTime());
+                if (task == null) {
+                    return;
+                }
+                notFull.signal();
+            } catch (InterruptedException exception) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            runTask(task);
+        }
+    }
+
+    private Task nextTask(long now) {
+        Lane starved = null;
+        long oldest = 0L;
+        for (Lane lane : Lane.values()) {
+            Task head = lanes.queue(lane).peekFirst();
+            if (lane != Lane.INTERACTIVE && head != null && now - head.queuedNanos() >= starvationNanos
+                    && (starved == null || head.queuedNanos() < oldest)) {
+                starved = lane;
+                oldest = head.queuedNanos();
+            }
+        }
+        if (starved != null) {
+            if (!lanes.queue(Lane.INTERACTIVE).isEmpty()) {
+                promoted++;
+            }
+            return poll(starved, now);
+        }
+        for (Lane lane : Lane.values()) {
+            if (!lanes.queue(lane).isEmpty()) {
+                return poll(lane, now);
+            }
+        }
+        return null;
+    }
+
+    private Task poll(Lane lane, long now) {
+        Task task = lanes.queue(lane).pollFirst();
+        lanes.recordWait(lane, now - task.queuedNanos());
+        return task;
+    }
+
+    private void runTask(Task task) {
+        try {
+            task.action().run();
+        } catch (Throwable throwable) {
+            if (task.description() == null || task.description().isBlank()) {
+                logger.log(Level.SEVERE, "Async task execution failed", throwable);
+            } else {
+                logger.log(Level.SEVERE, "Async task execution failed: " + task.description(), throwable);
+            }
+        }
+    }
+
+    private static String describe(String description) {
+        return description == null || description.isBlank() ? "unnamed task" : description;
+    }
+
+    public enum Lane {
+        INTERACTIVE,
+        WRITE,
+        BULK
+    }
+
+    public enum Priority {
+        LOW,
+        NORMAL,
+        HIGH,
+        ESSENTIAL
+    }
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP_LOWEST;
+
+        public static OverflowPolicy parse(String value, OverflowPolicy fallback) {
+            if (value == null) {
+                return fallback;
+            }
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(value.trim().replace('-', '_'))) {
+                    return policy;
+                }
+            }
+            return fallback;
+        }
+    }
+
+    public record Statistics(int depth,
+                             int capacity,
+                             int hardCapacity,
+                             int peakDepth,
+                             List<LaneStatistics> lanes,
+                             long promoted,
+                             long starvationMillis,
+                             long blockedSubmissions,
+                             double blockedMillis,
+                             long dropped,
+                             long droppedLow,
+                             long droppedNormal,
+                             long droppedHigh,
+                             long rejected) {
+    }
+
+    public record LaneStatistics(Lane lane, int depth, long executed, double averageWaitMillis, double maxWaitMillis) {
+    }
+
+    private record Task(String description, Lane lane, Priority priority, Runnable action, long queuedNanos) {
+    }
+
+    private static final class Lanes {
+
+        private final List<ArrayDeque<Task>> queues = new ArrayList<>();
+        private final long[] executed = new long[Lane.values().length];
+        private final long[] totalWaitNanos = new long[Lane.values().length];
+        private final long[] maxWaitNanos = new long[Lane.values().length];
+
+        private Lanes() {
+            for (int lane = 0; lane < Lane.values().length; lane++) {
+                queues.add(new ArrayDeque<>());
+            }
+        }
+
+        private ArrayDeque<Task> queue(Lane lane) {
+            return queues.get(lane.ordinal());
+        }
+
+        private int size() {
+            int size = 0;
+            for (ArrayDeque<Task> queue : queues) {
+                size += queue.size();
+            }
+            return size;
+        }
+
+        private void clear() {
+            for (ArrayDeque<Task> queue : queues) {
+                queue.clear();
+            }
+        }
+
+        private void recordWait(Lane lane, long waitedNanos) {
+            int index = lane.ordinal();
+            executed[index]++;
+            totalWaitNanos[index] += waitedNanos;
+            maxWaitNanos[index] = Math.max(maxWaitNanos[index], waitedNanos);
+        }
+
+        private LaneStatistics statistics(Lane lane) {
+            int index = lane.ordinal();
+            return new LaneStatistics(
+                    lane,
+                    queues.get(index).size(),
+                    executed[index],
+                    executed[index] == 0L ? 0.0D : totalWaitNanos[index] / 1_000_000.0D / executed[index],
+                    maxWaitNanos[index] / 1_000_000.0D
+            );
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.foxy.inventoryRestore.util;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public final class DateFormats {
 
@@ -9,4 +12,19 @@ public final class DateFormats {
 
     public static final DateTimeFormatter RECORD_DATE_TIME = DateTimeFormatter.ofPattern("dd/MM/yy HH:mm:ss");
     public static final DateTimeFormatter SQLITE_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static long recordDateToEpochMillis(String recordDate) {
+        if (recordDate == null || recordDate.isBlank()) {
+            return 0L;
+        }
+        try {
+            return toEpochMillis(LocalDateTime.parse(recordDate.trim(), RECORD_DATE_TIME));
+        } catch (DateTimeParseException exception) {
+            return 0L;
+        }
+    }
 }
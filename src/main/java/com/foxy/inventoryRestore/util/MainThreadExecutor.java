@@ -0,0 +1,29 @@
+package com.foxy.inventoryRestore.util;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public final class MainThreadExecutor implements Executor {
+
+    private final Plugin plugin;
+
+    public MainThreadExecutor(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!plugin.isEnabled()) {
+            return;
+        }
+        Bukkit.getScheduler().runTask(plugin, command);
+    }
+
+    public <T> CompletableFuture<T> sync(CompletableFuture<T> future) {
+        return future.whenCompleteAsync((result, error) -> {
+        }, this);
+    }
+}